@@ -0,0 +1,62 @@
+package Game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks drawing to an offscreen camera and a whole update and draw tick, so no window is needed.
+ * @author Connor Stewart
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FrameBenchmark {
+
+	/** The fixed time step of an update in milliseconds. */
+	private static final float STEP = 1000f / 60;
+
+	/** The camera and simulation of the map being benchmarked. */
+	@State(Scope.Benchmark)
+	public static class Frame {
+
+		Camera cam;
+		Simulation simulation;
+
+		/** The time of the last update in nanoseconds. */
+		long time;
+
+		@Setup(Level.Trial)
+		public void create(MapState state) {
+			Map map = state.map;
+
+			cam = new Camera(null, 600, 338, map.getMinX(), map.getMinY(),
+					map.getMinX() + map.getWidth(), map.getMinY() + map.getHeight(), false);
+			cam.setBackground(Assets.getImage("images/background.png"));
+
+			simulation = new Simulation(map, 0);
+		}
+	}
+
+	@Benchmark
+	public void cameraFlush(Frame frame) {
+		frame.cam.flush();
+	}
+
+	@Benchmark
+	public long tick(MapState state, Frame frame) {
+		Camera cam = frame.cam;
+
+		frame.time += (long) (STEP * 1_000_000);
+		frame.simulation.update(STEP, frame.time, cam);
+
+		Snapshot snapshot = frame.simulation.getSnapshot();
+		cam.centreOn(snapshot.getPlayerX(1), snapshot.getPlayerY(1));
+		state.map.getTileLayer().draw(cam);
+		snapshot.draw(cam, 1, false);
+		cam.flush();
+		return frame.simulation.getTicks();
+	}
+}
@@ -0,0 +1,64 @@
+package Game;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.*;
+
+/**
+ * Reads a map the way {@link Map} did before {@link MapReader}, by reading the whole file into a string and parsing it
+ * into an org.json tree, only used as a baseline to benchmark MapReader against.
+ * @author Connor Stewart
+ */
+final class JsonMapLoader {
+
+	private JsonMapLoader() {}
+
+	/**
+	 * Reads a finite map.
+	 * @param jsonFileLocation the location of the map
+	 * @return the contents of the map
+	 * @throws IOException if the map could not be read
+	 */
+	static MapData read(String jsonFileLocation) throws IOException {
+		StringBuilder sb = new StringBuilder();
+
+		try (BufferedReader buf = new BufferedReader(new InputStreamReader(new FileInputStream(jsonFileLocation)))) {
+			String line = buf.readLine();
+
+			while (line != null) {
+				sb.append(line).append("\n");
+				line = buf.readLine();
+			}
+		}
+
+		JSONObject base = new JSONObject(sb.toString());
+		MapData map = new MapData();
+
+		JSONObject layer = base.getJSONArray("layers").getJSONObject(0);
+		map.width = layer.getInt("width");
+		map.height = layer.getInt("height");
+
+		JSONObject tileset = base.getJSONArray("tilesets").getJSONObject(0);
+		map.firstGID = tileset.getInt("firstgid");
+
+		JSONArray tilesJSON = tileset.getJSONArray("tiles");
+		for (int i = 0; i < tilesJSON.length(); i++) {
+			JSONObject entry = tilesJSON.getJSONObject(i);
+			map.tileImages.put(entry.getInt("id"), entry.getString("image"));
+		}
+
+		JSONArray data = layer.getJSONArray("data");
+		map.data = new int[map.width * map.height];
+		for (int i = 0; i < map.data.length; i++)
+			map.data[i] = data.getInt(i);
+
+		JSONArray objects = base.getJSONArray("layers").getJSONObject(1).getJSONArray("objects");
+		for (int i = 0; i < objects.length(); i++) {
+			JSONObject object = objects.getJSONObject(i);
+			map.objects.add(new MapData.MapObject(object.getString("name"), object.getInt("x"), object.getInt("y")));
+		}
+
+		return map;
+	}
+}
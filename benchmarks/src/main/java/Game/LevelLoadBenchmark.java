@@ -0,0 +1,68 @@
+package Game;
+
+import Game.Sound.Sound;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks loading each shipped level, from its JSON and from its compiled map, see {@link MapCompiler}.<br>
+ * The level is copied to a temporary directory first, so compiling it or not leaves the maps folder alone. Tile images
+ * are still found in the maps folder, as their locations are relative to the project root.
+ * @author Connor Stewart
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LevelLoadBenchmark {
+
+	/** A copy of a shipped level, with or without its compiled map next to it. */
+	@State(Scope.Benchmark)
+	public static class LevelCopy {
+
+		/** The location of the level. */
+		@Param({"maps/Level1.json", "maps/Level2.json", "maps/Level3.json"})
+		public String level;
+
+		/** Whether the level is loaded from its compiled map. */
+		@Param({"false", "true"})
+		public boolean compiled;
+
+		/** The location of the copy. */
+		String location;
+
+		@Setup(Level.Trial)
+		public void copy() throws IOException {
+			Sound.setEnabled(false);
+
+			File directory = Files.createTempDirectory("levels").toFile();
+			File copy = new File(directory, new File(level).getName());
+			Files.copy(new File(level).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			location = copy.getPath();
+
+			if (compiled)
+				MapCompiler.compile(location);
+		}
+
+		@TearDown(Level.Trial)
+		public void delete() {
+			File copy = new File(location);
+			new File(MapCompiler.compiledLocation(location)).delete();
+			copy.delete();
+			copy.getParentFile().delete();
+		}
+	}
+
+	@Benchmark
+	public Map levelLoad(LevelCopy level) throws MapFormatException {
+		Map map = new Map(level.location, null, MapState.SEED);
+		map.unload();
+		return map;
+	}
+}
@@ -0,0 +1,24 @@
+package Game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks loading a generated map.
+ * @author Connor Stewart
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MapBenchmark {
+
+	@Benchmark
+	public Map mapLoad(MapState state) throws MapFormatException {
+		Map map = new Map(state.location, null, MapState.SEED);
+		map.unload();
+		return map;
+	}
+}
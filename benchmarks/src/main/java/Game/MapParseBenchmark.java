@@ -0,0 +1,32 @@
+package Game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing a generated map with {@link MapReader} side by side with the org.json loader it replaced, see
+ * {@link JsonMapLoader}. Only the JSON is parsed, no tiles or sprites are created.
+ * @author Connor Stewart
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MapParseBenchmark {
+
+	@Benchmark
+	public MapData mapReader(MapState state) throws IOException {
+		try (Reader in = new InputStreamReader(new FileInputStream(state.location), StandardCharsets.UTF_8)) {
+			return MapReader.read(in);
+		}
+	}
+
+	@Benchmark
+	public MapData orgJson(MapState state) throws IOException {
+		return JsonMapLoader.read(state.location);
+	}
+}
@@ -0,0 +1,69 @@
+package Game;
+
+import Game.Entities.Slime;
+import Game.Entities.Tile;
+import Game.Physics.Line;
+import Game.Physics.TileGrid;
+import Game.Sound.Sound;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A generated map loaded once per trial, shared by the benchmarks, see {@link SyntheticMap}.
+ * @author Connor Stewart
+ */
+@State(Scope.Benchmark)
+public class MapState {
+
+	/** The seed every map is generated and loaded with, so each run benchmarks the same map and slime movement. */
+	static final long SEED = 42;
+
+	/** The width of the map in tiles. */
+	@Param({"200", "1000"})
+	public int size;
+
+	/** The amount of coins and slimes in the map. */
+	@Param({"100", "1000"})
+	public int sprites;
+
+	/** The location of the generated map. */
+	String location;
+
+	Map map;
+	Sprite player;
+	TileGrid tiles;
+
+	/** The slimes in the map, which are the sprites that look for the player. */
+	final List<Sprite> slimes = new ArrayList<>();
+
+	/** The tiles around the player, checked one by one the way line of sight used to be. */
+	final ArrayList<Tile> nearby = new ArrayList<>();
+
+	/** A line across the tiles around the player. */
+	Line line;
+
+	@Setup(Level.Trial)
+	public void load() throws IOException, MapFormatException {
+		Sound.setEnabled(false);
+
+		location = SyntheticMap.write(size, sprites, SEED);
+		map = new Map(location, null, SEED);
+		player = map.getPlayer();
+		tiles = map.getTileGrid();
+
+		for (Sprite sprite : map.getSprites())
+			if (sprite instanceof Slime)
+				slimes.add(sprite);
+
+		tiles.collectTiles(player.getX() - 160, player.getY() - 160, 320, 320, nearby);
+		line = new Line(player.getX() - 160, player.getY() + 160, player.getX() + 160, player.getY() - 160);
+	}
+
+	@TearDown(Level.Trial)
+	public void unload() {
+		map.unload();
+	}
+}
@@ -0,0 +1,63 @@
+package Game;
+
+import Game.Entities.Tile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the per sprite work of an update: collision, line of sight and animation.
+ * @author Connor Stewart
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SpriteBenchmark {
+
+	@Benchmark
+	public int collision(MapState state) {
+		int hits = 0;
+		for (Sprite sprite : state.map.getSprites())
+			if (sprite.tiles != null && sprite.colliding(1, 1) != null)
+				hits++;
+		return hits + (state.player.colliding(1, 1) != null ? 1 : 0);
+	}
+
+	@Benchmark
+	public int lineOfSightCached(MapState state) {
+		int seen = 0;
+		for (Sprite slime : state.slimes)
+			if (slime.canSee(state.player))
+				seen++;
+		return seen;
+	}
+
+	@Benchmark
+	public int lineOfSightUncached(MapState state) {
+		Sprite player = state.player;
+
+		int blocked = 0;
+		for (Sprite slime : state.slimes)
+			if (state.tiles.intersects(slime.getX(), slime.getY(), player.getX(), player.getY()))
+				blocked++;
+		return blocked;
+	}
+
+	@Benchmark
+	public int lineIntersectsTile(MapState state) {
+		int hits = 0;
+		for (Tile tile : state.nearby)
+			if (state.line.intersects(tile))
+				hits++;
+		return hits;
+	}
+
+	@Benchmark
+	public int animation(MapState state) {
+		for (Sprite sprite : state.map.getSprites())
+			sprite.updateAnim(16);
+		return state.map.getSprites().size();
+	}
+}
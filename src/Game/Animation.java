@@ -1,40 +1,122 @@
 package Game;
 
 import java.awt.*;
-import java.awt.image.*;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
-
-import javax.swing.ImageIcon;
+import java.util.Map;
 
 /**
     The Animation class manages a series of images (frames) and
     the amount of time to display each frame.
-    
+
+    The frames themselves are shared between every animation loaded
+    from the same files (see {@link Assets}), an Animation only holds
+    its own position within them. While an animation is the one a
+    sprite is showing, its position is kept in the sprites slot in a
+    {@link SpriteStore} instead, so every sprites animation can be
+    advanced in one pass.
+
     @author David Cairns
 */
 public class Animation {
 
-    private ArrayList<Image> frames;	// The set of animation frames
+    /** The effects which can be pre-rendered for every frame. */
+    public enum Effect {
+        /** Every visible pixel turned white, used to flash a sprite when it is hit. */
+        WHITE_FLASH,
+        /** The frame mirrored horizontally, used to draw a sprite facing the other way. */
+        FLIPPED,
+        /** The frame mirrored horizontally with every visible pixel turned white. */
+        FLIPPED_WHITE_FLASH;
+
+        /**
+         * @return whether this effect mirrors the frame
+         */
+        boolean isFlipped() {
+            return this == FLIPPED || this == FLIPPED_WHITE_FLASH;
+        }
+
+        /**
+         * @return whether this effect turns the frame white
+         */
+        boolean isWhite() {
+            return this == WHITE_FLASH || this == FLIPPED_WHITE_FLASH;
+        }
+    }
+
+    private FrameSet frames;	// The set of animation frames, shared with other animations
     private int currFrameIndex;				// Current frame animation is on
     private long animTime;					// Current animation time
     private float animSpeed = 1.0f;			// Animation speed, e.g. 2 will be twice as fast
     private boolean loop;			// True if the animation should continue looping
 	private int frameTime;
 
+	/** The pre-rendered frames for each prepared effect. */
+	private EnumMap<Effect, FrameSet> effectFrames = new EnumMap<>(Effect.class);
+
+	/** The store holding this animations position while a sprite is showing it, null otherwise. */
+	private SpriteStore store;
+
+	/** The slot of the sprite showing this animation. */
+	private int slot;
+
 	/**
      * Creates a new, empty Animation.
      * @param repeat whether to repeat the animation
      */
     public Animation(boolean repeat) {
         loop = repeat;
-        frames = new ArrayList<>();
+        frames = FrameSet.EMPTY;
     }
 
     public void restart() {
-        currFrameIndex = 0;
-        animTime = 0;
+        if (store != null) {
+            store.frameIndex[slot] = 0;
+            store.animTime[slot] = 0;
+        } else {
+            currFrameIndex = 0;
+            animTime = 0;
+        }
+    }
+
+    /**
+     * Moves this animation's position into a sprite's slot, as the
+     * sprite is now showing it.
+     *
+     * @param store The store holding the sprite
+     * @param slot The slot of the sprite
+     */
+    void attach(SpriteStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+
+        store.animations[slot] = this;
+        store.frameIndex[slot] = currFrameIndex;
+        store.animTime[slot] = animTime;
+        store.frameCount[slot] = frames.size();
+        store.frameTime[slot] = frameTime;
+        store.animSpeed[slot] = animSpeed;
+        store.loop[slot] = loop;
+    }
+
+    /**
+     * Moves this animation's position back out of the sprite's slot,
+     * as the sprite has stopped showing it.
+     */
+    void detach() {
+        if (store == null)
+            return;
+
+        currFrameIndex = store.frameIndex[slot];
+        animTime = store.animTime[slot];
+        store = null;
+    }
+
+    /**
+     * @return The index of the current frame
+     */
+    private int frameIndex() {
+        return (store != null) ? store.frameIndex[slot] : currFrameIndex;
     }
 
     /**
@@ -44,6 +126,11 @@ public class Animation {
      * @param elapsedTime	Time that has elapsed since last call
      */
     void update(long elapsedTime) {
+        if (store != null) {
+            store.updateAnimation(slot, elapsedTime);
+            return;
+        }
+
     	elapsedTime = (long)(elapsedTime * animSpeed);
 
         if (frames.size() > 1) {
@@ -65,97 +152,103 @@ public class Animation {
     /**
      * Gets this Animation's current image. Returns null if this
      * animation has no images.
-     * 
+     *
      * @return The current image that should be displayed
      */
     Image getImage() {
         if (frames.size() == 0) {
             return null;
         } else {
-            return frames.get(currFrameIndex);
+            return frames.getFrame(frameIndex());
         }
     }
 
-    
     /**
-     * Loads a complete animation from an animation sheet and adds each
-     * frame in the sheet to the animation with the given frameDuration.
+     * Gets the width of this Animation's current image. Returns 0 if this
+     * animation has no images.
      *
-     * @param fileName	The path to the file to load the animations from
-     * @param rows		How many rows there are in the sheet
-     * @param columns	How many columns there are in the sheet
-     * @param frameDuration	The duration of each frame
+     * @return The width of the current image
      */
-    public void loadAnimationFromSheet(String fileName, int columns, int rows, int frameDuration) {
-    	Image sheet = new ImageIcon(fileName).getImage();
-    	Image[] images = getImagesFromSheet(sheet, columns, rows);
-    	frameTime = frameDuration;
+    int getWidth() {
+        return (frames.size() == 0) ? 0 : frames.getWidth(frameIndex());
+    }
 
-    	frames.addAll(Arrays.asList(images));
+    /**
+     * Gets the height of this Animation's current image. Returns 0 if this
+     * animation has no images.
+     *
+     * @return The height of the current image
+     */
+    int getHeight() {
+        return (frames.size() == 0) ? 0 : frames.getHeight(frameIndex());
     }
 
     /**
-     * Loads a set of images from a sprite sheet so that they can be added to an animation.
-     * Courtesy of Donald Robertson.
+     * Gets this Animation's current image with an effect applied. Returns the plain
+     * image if the effect has not been prepared.
+     *
+     * @param effect The effect to apply
+     * @return The current image with the effect
      */
-    private Image[] getImagesFromSheet(Image sheet, int columns, int rows) {
-
-        // basic method to achieve split of sprite sheet
-        // overloading could be used to achieve more complex things 
-    	// such as sheets where all images are not the same dimensions
-        // deliberately 'overcommented' for clarity when integrating with
-    	// main engine
-
-        // initialise image array to return
-        Image[] split = new Image[rows*columns];
-
-        // easiest way to count as going through sprite sheet as though it is a 2d array
-        int count = 0;
-
-        // initialise width & height of split up images
-        int width = sheet.getWidth(null)/columns;
-        int height = sheet.getHeight(null)/rows;
-
-        // for each column in each row
-        for(int i = 0; i < rows; i++) 
-        {
-            for(int j = 0; j < columns; j++) 
-            {
-            	// create an image filter
-            	// top left (x) = j*width, (y) = i*height
-            	// extract rectangular region of width and height from origin x,y
-            	ImageFilter cropper = new CropImageFilter(j*width,i*height, width, height);
-            	
-                // create image source based on original sprite sheet with filter applied
-                // results in image source for cropped image being generated
-                FilteredImageSource cropped = new FilteredImageSource(sheet.getSource(), cropper);
-                
-                // create a new image using generated image source and store in appropriate array element
-                split[count] = Toolkit.getDefaultToolkit().createImage(cropped);
-                        
-                // increment count to prevent elements being overwritten
-                count++;
-            }
+    Image getImage(Effect effect) {
+        FrameSet prepared = effectFrames.get(effect);
+
+        if (prepared == null || prepared.size() == 0) {
+            return getImage();
+        } else {
+            return prepared.getFrame(frameIndex());
         }
+    }
 
-        // return array
-        return split;
+    /**
+     * Prepares the given effect for every frame so it can be drawn without any extra work.
+     * The effect frames are shared by every animation using the same frames.
+     *
+     * @param effect The effect to prepare
+     */
+    public void prepareEffect(Effect effect) {
+        effectFrames.put(effect, frames.withEffect(effect));
     }
 
-    public void loadAnimationFromImages(List<String> imageList, int frameTime, int width, int height) {
+    /**
+     * Sets the frames of this animation, along with any prepared effects for them.
+     *
+     * @param frames The shared frames to use
+     * @param frameTime The duration of each frame
+     */
+    public void setFrames(FrameSet frames, int frameTime) {
+        SpriteStore shownIn = store;
+        detach();
+
+        this.frames = frames;
         this.frameTime = frameTime;
-        for (int i = 0; i < imageList.size(); i++) {
-            Image image = new ImageIcon(imageList.get(i)).getImage();
-            image = image.getScaledInstance(width, height, Image.SCALE_DEFAULT);
-            frames.add(image);
-        }
+        restart();
+
+        if (shownIn != null)
+            attach(shownIn, slot);
+
+        for (Map.Entry<Effect, FrameSet> entry : effectFrames.entrySet())
+            entry.setValue(frames.withEffect(entry.getKey()));
+    }
+
+    /**
+     * Loads a complete animation from an animation sheet and uses each
+     * frame in the sheet with the given frameDuration.
+     *
+     * @param fileName	The path to the file to load the animations from
+     * @param rows		How many rows there are in the sheet
+     * @param columns	How many columns there are in the sheet
+     * @param frameDuration	The duration of each frame
+     */
+    public void loadAnimationFromSheet(String fileName, int columns, int rows, int frameDuration) {
+    	setFrames(Assets.getSheet(fileName, columns, rows), frameDuration);
+    }
+
+    public void loadAnimationFromImages(List<String> imageList, int frameTime, int width, int height) {
+        setFrames(Assets.getImages(imageList, width, height), frameTime);
     }
 
     public void loadAnimationFromImages(List<String> imageList, int frameTime) {
-        this.frameTime = frameTime;
-        for (int i = 0; i < imageList.size(); i++) {
-            Image image = new ImageIcon(imageList.get(i)).getImage();
-            frames.add(image);
-        }
+        setFrames(Assets.getImages(imageList), frameTime);
     }
 }
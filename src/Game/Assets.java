@@ -0,0 +1,250 @@
+package Game;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is a process wide cache of images and animation frames.<br>
+ * Each file is only decoded once, no matter how many levels or sprites use it.<br>
+ * In headless mode no images are decoded at all, animation frames only know their sizes (read from the image headers)
+ * so sprites behave exactly as they would with a window, and sounds are not opened.
+ * @author Connor Stewart
+ */
+public final class Assets {
+
+	/** Decoded images by file name. */
+	private static final ConcurrentHashMap<String, BufferedImage> images = new ConcurrentHashMap<>();
+
+	/** Shared animation frames by the files and layout they were loaded from. */
+	private static final ConcurrentHashMap<String, FrameSet> frameSets = new ConcurrentHashMap<>();
+
+	/** The sizes of images by file name, only read in headless mode. */
+	private static final ConcurrentHashMap<String, Dimension> sizes = new ConcurrentHashMap<>();
+
+	/** The size of an image which could not be read. */
+	private static final Dimension UNREADABLE = new Dimension(-1, -1);
+
+	/** Whether images and sounds are skipped, defaults to the game.headless system property. */
+	private static volatile boolean headless = Boolean.getBoolean("game.headless");
+
+	private Assets() {}
+
+	/**
+	 * Turns headless mode on or off, this should be done before any maps are loaded.
+	 * @param headless whether to skip loading images and sounds
+	 */
+	public static void setHeadless(boolean headless) {
+		Assets.headless = headless;
+	}
+
+	/**
+	 * @return whether images and sounds are skipped
+	 */
+	public static boolean isHeadless() {
+		return headless;
+	}
+
+	/**
+	 * Gets an image, decoding it the first time it is requested.
+	 * @param fileName the path to the image
+	 * @return the decoded image, or null if it could not be read or in headless mode
+	 */
+	public static BufferedImage getImage(String fileName) {
+		if (headless)
+			return null;
+
+		return images.computeIfAbsent(fileName, Assets::readImage);
+	}
+
+	/**
+	 * Gets the frames of a sprite sheet, splitting it the first time it is requested.
+	 * @param fileName the path to the sprite sheet
+	 * @param columns how many columns there are in the sheet
+	 * @param rows how many rows there are in the sheet
+	 * @return the frames in the sheet, empty if the sheet could not be read
+	 */
+	public static FrameSet getSheet(String fileName, int columns, int rows) {
+		if (headless) {
+			return frameSets.computeIfAbsent("headless|" + fileName + "#" + columns + "x" + rows, key -> {
+				Dimension size = getSize(fileName);
+				if (size == UNREADABLE)
+					return FrameSet.EMPTY;
+
+				return FrameSet.ofSize(rows * columns, size.width / columns, size.height / rows);
+			});
+		}
+
+		return frameSets.computeIfAbsent(fileName + "#" + columns + "x" + rows, key -> {
+			BufferedImage sheet = getImage(fileName);
+			if (sheet == null)
+				return FrameSet.EMPTY;
+
+			// width & height of the split up images
+			int width = sheet.getWidth() / columns;
+			int height = sheet.getHeight() / rows;
+
+			BufferedImage[] split = new BufferedImage[rows * columns];
+			int count = 0;
+			for (int i = 0; i < rows; i++)
+				for (int j = 0; j < columns; j++)
+					split[count++] = sheet.getSubimage(j * width, i * height, width, height);
+
+			return new FrameSet(split);
+		});
+	}
+
+	/**
+	 * Gets a set of frames made from individual images, scaled to the given size.
+	 * @param fileNames the paths to the images, in frame order
+	 * @param width the width to scale each image to
+	 * @param height the height to scale each image to
+	 * @return the frames, skipping any images that could not be read
+	 */
+	public static FrameSet getImages(List<String> fileNames, int width, int height) {
+		if (headless) {
+			return frameSets.computeIfAbsent("headless|" + String.join("|", fileNames) + "#" + width + "x" + height, key -> {
+				int count = (int) fileNames.stream().filter(fileName -> getSize(fileName) != UNREADABLE).count();
+				return FrameSet.ofSize(count, width, height);
+			});
+		}
+
+		return frameSets.computeIfAbsent(String.join("|", fileNames) + "#" + width + "x" + height, key -> {
+			BufferedImage[] frames = fileNames.stream()
+					.map(Assets::getImage)
+					.filter(image -> image != null)
+					.map(image -> scale(image, width, height))
+					.toArray(BufferedImage[]::new);
+
+			return new FrameSet(frames);
+		});
+	}
+
+	/**
+	 * Gets a set of frames made from individual images at their original size.
+	 * @param fileNames the paths to the images, in frame order
+	 * @return the frames, skipping any images that could not be read
+	 */
+	public static FrameSet getImages(List<String> fileNames) {
+		if (headless) {
+			return frameSets.computeIfAbsent("headless|" + String.join("|", fileNames), key -> {
+				Dimension[] frames = fileNames.stream()
+						.map(Assets::getSize)
+						.filter(size -> size != UNREADABLE)
+						.toArray(Dimension[]::new);
+
+				return FrameSet.ofSizes(frames);
+			});
+		}
+
+		return frameSets.computeIfAbsent(String.join("|", fileNames), key -> {
+			BufferedImage[] frames = fileNames.stream()
+					.map(Assets::getImage)
+					.filter(image -> image != null)
+					.toArray(BufferedImage[]::new);
+
+			return new FrameSet(frames);
+		});
+	}
+
+	/**
+	 * Creates an empty image in a format that is fast to draw to the screen.
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param transparency the transparency mode of the image, from {@link Transparency}
+	 * @return the new image
+	 */
+	static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+		if (GraphicsEnvironment.isHeadless())
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice().getDefaultConfiguration();
+		return gc.createCompatibleImage(width, height, transparency);
+	}
+
+	/**
+	 * Creates a scaled copy of an image.
+	 * @param image the image to scale
+	 * @param width the new width
+	 * @param height the new height
+	 * @return the scaled image
+	 */
+	private static BufferedImage scale(BufferedImage image, int width, int height) {
+		BufferedImage scaled = createCompatibleImage(width, height, image.getTransparency());
+		Graphics2D g = scaled.createGraphics();
+		g.drawImage(image, 0, 0, width, height, null);
+		g.dispose();
+		return scaled;
+	}
+
+	/**
+	 * Reads an image from a file, waiting for it to be fully decoded.
+	 * @param fileName the path to the image
+	 * @return the decoded image, or null if it could not be read
+	 */
+	private static BufferedImage readImage(String fileName) {
+		try {
+			BufferedImage image = ImageIO.read(new File(fileName));
+
+			if (image == null) {
+				System.err.println("Unsupported image format: " + fileName);
+				return null;
+			}
+
+			BufferedImage compatible = createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+			Graphics2D g = compatible.createGraphics();
+			g.drawImage(image, 0, 0, null);
+			g.dispose();
+			return compatible;
+		} catch (IOException e) {
+			System.err.println("Failed to load image: " + fileName);
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the size of an image, reading only its header the first time it is requested.
+	 * @param fileName the path to the image
+	 * @return the size of the image, or {@link #UNREADABLE} if it could not be read
+	 */
+	private static Dimension getSize(String fileName) {
+		return sizes.computeIfAbsent(fileName, Assets::readSize);
+	}
+
+	/**
+	 * Reads the size of an image from its header without decoding it.
+	 * @param fileName the path to the image
+	 * @return the size of the image, or {@link #UNREADABLE} if it could not be read
+	 */
+	private static Dimension readSize(String fileName) {
+		try (ImageInputStream in = ImageIO.createImageInputStream(new File(fileName))) {
+			Iterator<ImageReader> readers = (in == null) ? null : ImageIO.getImageReaders(in);
+
+			if (readers == null || !readers.hasNext()) {
+				System.err.println("Unsupported image format: " + fileName);
+				return UNREADABLE;
+			}
+
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in);
+				return new Dimension(reader.getWidth(0), reader.getHeight(0));
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to load image: " + fileName);
+			e.printStackTrace();
+			return UNREADABLE;
+		}
+	}
+}
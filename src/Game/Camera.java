@@ -5,6 +5,8 @@ import Game.Physics.Point;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -15,6 +17,15 @@ import java.util.IdentityHashMap;
  */
 public class Camera {
 
+    /** The distance in pixels outside of the camera region that is still treated as visible. */
+    private static final int CULL_MARGIN = 16;
+
+    /** The minimum x of the camera. */
+    private final int minX;
+
+    /** The minimum y of the camera. */
+    private final int minY;
+
     /** The maximum y of the camera. */
     private final int maxY;
 
@@ -24,11 +35,11 @@ public class Camera {
     /** Whether the camera is displaying in fullscreen. */
     private final boolean fullscreen;
 
-    /** The cameras x coordinate in the game world. */
-    private float x = 0;
+    /** The cameras x coordinate in the game world, volatile as the simulation reads it while the renderer moves it. */
+    private volatile float x = 0;
 
     /** The cameras y coordinate in the game world. */
-    private float y = 0;
+    private volatile float y = 0;
 
     /** The width of the cameras vision in the game world. */
     private float width;
@@ -36,19 +47,28 @@ public class Camera {
     /** The height of the cameras vision in the game world. */
     private float height;
 
-    /** The window to draw to. */
+    /** The window to draw to, null if frames are only drawn to the buffer. */
     private JFrame window;
 
     /** The cameras graphics. */
     private Graphics2D g;
 
-    /** The image to draw to the window. */
+    /** The image to draw to the window, this is cleared and reused every frame. */
     private BufferedImage buffer;
 
-    /** A sprite for the camera to follow. */
-    private Sprite toFollow;
+    /** The graphics configuration of the windows screen, null without a window. */
+    private final GraphicsConfiguration screenConfiguration;
+
+    /** The amount of buffers used to page flip to the window. */
+    private static final int WINDOW_BUFFERS = 2;
+
+    /** Whether to wait for the display to refresh when showing a frame. */
+    private boolean vsync = false;
+
+    /** The windows buffer strategy, null until the window can be drawn to. */
+    private BufferStrategy strategy;
 
-    /** The background image to draw. */
+    /** The background image to draw, already scaled to the size it is drawn at. */
     private Image background;
     private HashMap<Line,Color> lines = new HashMap<>();
 
@@ -62,6 +82,23 @@ public class Camera {
      * @param fullscreen whether the camera should draw fullscreen
      */
     public Camera(JFrame window, int width, int height, int maxX, int maxY, boolean fullscreen) {
+        this(window, width, height, 0, 0, maxX, maxY, fullscreen);
+    }
+
+    /**
+     * Initialises the camera and creates a new buffer.
+     * @param window the window to draw to, or null to only draw to the buffer, such as when benchmarking
+     * @param width the width of the camera region
+     * @param height the height of the camera region
+     * @param minX the minimum world x of the camera
+     * @param minY the minimum world y of the camera
+     * @param maxX the maximum world x of the camera
+     * @param maxY the maximum world y of the camera
+     * @param fullscreen whether the camera should draw fullscreen
+     */
+    public Camera(JFrame window, int width, int height, int minX, int minY, int maxX, int maxY, boolean fullscreen) {
+        this.minX = minX;
+        this.minY = minY;
         this.maxX = maxX;
         this.maxY = maxY;
         this.window = window;
@@ -69,19 +106,25 @@ public class Camera {
         this.height = height;
         this.fullscreen = fullscreen;
 
-        buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        //match the buffer to the screen, so images made for the screen can be drawn to it without converting them
+        screenConfiguration = (window != null) ? window.getGraphicsConfiguration() : null;
+        if (screenConfiguration != null)
+            buffer = screenConfiguration.createCompatibleImage(width, height, Transparency.OPAQUE);
+        else
+            buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
         g = buffer.createGraphics();
         g.setClip(0, 0, width, height);
     }
 
     /**
      * Sets the x coordinate.<br>
-     * Validates that its within the maxX.
+     * Validates that its within the minX and maxX.
      * @param newX the new x value
      */
     private void setX(float newX) {
-        if (newX < 0) {
-            x = 0;
+        if (newX < minX) {
+            x = minX;
         } else if (newX + width > maxX) {
             x = maxX - width;
         } else {
@@ -91,12 +134,12 @@ public class Camera {
 
     /**
      * Sets the y coordinate.<br>
-     * Validates that its within the maxY.
+     * Validates that its within the minY and maxY.
      * @param newY the new y value
      */
     private void setY(float newY) {
-        if (newY < 0) {
-            y = 0;
+        if (newY < minY) {
+            y = minY;
         } else if (newY + height > maxY) {
             y = maxY - height;
         } else {
@@ -112,21 +155,21 @@ public class Camera {
      * @return a position between the two given positions based on the alpha
      */
     public Point interpolatePosition(Point lastPosition, Point newPosition, float alpha) {
-    	float lastX = lastPosition.x;
-    	float lastY = lastPosition.y;
-    	float newX = newPosition.x;
-    	float newY = newPosition.y;
-
-    	float xDist = newX - lastX;
-    	float xInterpol = xDist * alpha;
-        float interpolatedX = lastX + xInterpol;
-        float yDist = newY - lastY;
-        float yInterpol = yDist * alpha;
-        float interpolatedY = lastY + yInterpol;
-
-		return new Point(interpolatedX, interpolatedY);
+		return new Point(interpolate(lastPosition.x, newPosition.x, alpha), interpolate(lastPosition.y, newPosition.y, alpha));
 	}
 
+    /**
+     * Interpolates between a last and new value using the given alpha, without creating any objects.
+     * @param last the last value
+     * @param current the new value
+     * @param alpha the amount (between 0 and 1) to interpolate between the values.
+     * @return a value between the two given values based on the alpha
+     */
+    public float interpolate(float last, float current, float alpha) {
+        float dist = current - last;
+        return last + dist * alpha;
+    }
+
     /**
      * Gives a world point relative to the camera.
      * @param point the point to convert
@@ -137,52 +180,170 @@ public class Camera {
 	}
 
     /**
-     * Sets the sprite to follow.
-     * @param toFollow the sprite to follow
+     * Gives a world x coordinate relative to the camera.
+     * @param worldX the x coordinate to convert
+     * @return the x coordinate relative to the camera
      */
-    public void follow(Sprite toFollow) {
-        this.toFollow = toFollow;
+    public float toCameraX(float worldX) {
+        return worldX - x;
     }
 
     /**
-     * Draws the buffer to screen.
+     * Gives a world y coordinate relative to the camera.
+     * @param worldY the y coordinate to convert
+     * @return the y coordinate relative to the camera
      */
-    public void flush() {
-        if (toFollow != null) {
-            setX((int)(toFollow.getX()) - width / 2);
-            setY((int)(toFollow.getY()) - height / 2);
-        }
+    public float toCameraY(float worldY) {
+        return worldY - y;
+    }
 
-        try {
-            if (fullscreen)
-                window.getGraphics().drawImage(buffer,0,0, window.getWidth(), window.getHeight(), null);
-            else
-                window.getGraphics().drawImage(buffer,8,31, window.getWidth() - 16, window.getHeight() - 37, null);
-        }catch (NullPointerException e) {
-            //ignoring as this means the game has probably exited
-        }
+    /**
+     * Gets the region of the game world the camera can currently see, expanded by a small margin, without creating any
+     * objects.
+     * @param area the rectangle to set to the visible world region
+     * @return the given rectangle
+     */
+    public Rectangle2D.Float getVisibleArea(Rectangle2D.Float area) {
+        area.setRect(x - CULL_MARGIN, y - CULL_MARGIN, width + CULL_MARGIN * 2, height + CULL_MARGIN * 2);
+        return area;
+    }
 
-        buffer = new BufferedImage((int)width, (int)height, BufferedImage.TYPE_INT_RGB);
-        g = buffer.createGraphics();
-        g.setClip(0, 0, (int)width, (int)height);
+    /**
+     * Checks if a world rectangle intersects the visible region of the camera.
+     * @param worldX the rectangles world x coordinate
+     * @param worldY the rectangles world y coordinate
+     * @param rectWidth the width of the rectangle
+     * @param rectHeight the height of the rectangle
+     * @return whether any of the rectangle would be drawn
+     */
+    public boolean isVisible(float worldX, float worldY, float rectWidth, float rectHeight) {
+        return worldX < x + width + CULL_MARGIN &&
+                worldX + rectWidth > x - CULL_MARGIN &&
+                worldY < y + height + CULL_MARGIN &&
+                worldY + rectHeight > y - CULL_MARGIN;
+    }
+
+    /**
+     * Centres the camera on a point, as far as the camera bounds allow.
+     * @param x the world x coordinate to centre on
+     * @param y the world y coordinate to centre on
+     */
+    public void centreOn(float x, float y) {
+        setX((int) x - width / 2);
+        setY((int) y - height / 2);
+    }
+
+    /**
+     * Draws the buffer to screen and clears it ready for the next frame.
+     */
+    public void flush() {
+        present();
+        clear();
+    }
+
+    /**
+     * Clears the buffer and draws the background and any pushed lines, ready for the next frame.<br>
+     * The background and lines are drawn for the cameras current position, so call this once the camera has been moved
+     * for the frame.
+     */
+    public void clear() {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, (int)width, (int)height);
 
         if (background != null)
-            g.drawImage(background, (int) ((x / 2) - width), 0, (int) width * 2, (int) height, null);
+            g.drawImage(background, (int) ((x / 2) - width), 0, null);
 
 
         for (Line line : lines.keySet()) {
             Color color = lines.get(line);
-            Point p1 = toCameraCoordinates(line.getP1());
-            Point p2 = toCameraCoordinates(line.getP2());
+            Point p1 = line.getP1();
+            Point p2 = line.getP2();
 
             g.setColor(color);
-            g.drawLine((int)p1.x, (int)p1.y, (int)p2.x, (int)p2.y);
+            g.drawLine((int)toCameraX(p1.x), (int)toCameraY(p1.y), (int)toCameraX(p2.x), (int)toCameraY(p2.y));
         }
 
         if (lines.size() > 1)
             lines.clear();
     }
 
+    /**
+     * Draws the buffer to the windows back buffer and flips it to the screen, does nothing without a window.
+     */
+    public void present() {
+        if (window == null)
+            return;
+
+        try {
+            flip();
+        } catch (IllegalStateException e) {
+            //ignoring as this means the game has probably exited
+        }
+    }
+
+    /**
+     * Flips the buffer to the window, creating the windows buffer strategy the first time.
+     */
+    private void flip() {
+        if (strategy == null) {
+            //a buffer strategy can only be created once the window is displayable
+            if (!window.isDisplayable())
+                return;
+
+            createStrategy();
+        }
+
+        do {
+            do {
+                Graphics windowGraphics = strategy.getDrawGraphics();
+
+                if (fullscreen)
+                    windowGraphics.drawImage(buffer,0,0, window.getWidth(), window.getHeight(), null);
+                else
+                    windowGraphics.drawImage(buffer,8,31, window.getWidth() - 16, window.getHeight() - 37, null);
+
+                windowGraphics.dispose();
+            } while (strategy.contentsRestored());
+
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        //make sure the frame has actually been sent to the display before timing the next one
+        if (vsync)
+            Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Creates the windows buffer strategy.<br>
+     * With vsync a page flipping strategy is asked for, as flipping waits for the display to refresh. Not every
+     * display supports this, so the default strategy is used if it can not be created.
+     */
+    private void createStrategy() {
+        if (vsync) {
+            BufferCapabilities flipping = new BufferCapabilities(new ImageCapabilities(true), new ImageCapabilities(true),
+                    BufferCapabilities.FlipContents.UNDEFINED);
+
+            try {
+                window.createBufferStrategy(WINDOW_BUFFERS, flipping);
+                strategy = window.getBufferStrategy();
+                return;
+            } catch (AWTException e) {
+                System.err.println("Page flipping is not supported, vsync may not be available.");
+            }
+        }
+
+        window.createBufferStrategy(WINDOW_BUFFERS);
+        strategy = window.getBufferStrategy();
+    }
+
+    /**
+     * Sets whether to wait for the display to refresh when showing a frame, this must be set before the first frame.
+     * @param vsync whether to use vsync
+     */
+    public void setVSync(boolean vsync) {
+        this.vsync = vsync;
+    }
+
     /**
      * Gets the graphics object to draw to.
      * @return the graphics object
@@ -192,11 +353,35 @@ public class Camera {
     }
 
     /**
-     * Sets the background to draw on.
-     * @param background the background image
+     * Gets the graphics configuration images drawn by this camera should be made for.<br>
+     * This is the configuration of the windows screen, the same one {@link TileLayer#prebake} is given, so images
+     * made ahead of time stay valid once the camera draws them. Without a window it is the buffers own configuration.
+     * @return the graphics configuration
+     */
+    public GraphicsConfiguration getGraphicsConfiguration() {
+        return (screenConfiguration != null) ? screenConfiguration : g.getDeviceConfiguration();
+    }
+
+    /**
+     * Sets the background to draw on.<br>
+     * The image is scaled to twice the width and the height of the camera here, as drawing an image scaled allocates
+     * every time it is drawn.
+     * @param background the background image, or null for none
      */
     public void setBackground(Image background) {
-        this.background = background;
+        if (background == null) {
+            this.background = null;
+            return;
+        }
+
+        int transparency = (background instanceof Transparency) ? ((Transparency) background).getTransparency() : Transparency.TRANSLUCENT;
+        BufferedImage scaled = getGraphicsConfiguration().createCompatibleImage((int) width * 2, (int) height, transparency);
+
+        Graphics2D scaledGraphics = scaled.createGraphics();
+        scaledGraphics.drawImage(background, 0, 0, (int) width * 2, (int) height, null);
+        scaledGraphics.dispose();
+
+        this.background = scaled;
     }
 
     public void pushDrawLine(Line line, Color color) {
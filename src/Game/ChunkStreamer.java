@@ -0,0 +1,327 @@
+package Game;
+
+import Game.Entities.Tile;
+import Game.Physics.TileGrid;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class loads and unloads the chunks of an infinite map around the camera.<br>
+ * The tile ids of every chunk are kept in memory as they are small, but the tiles themselves are only created for the
+ * chunks near the camera. Chunks are built on a background thread and handed to the thread updating the level, which
+ * is the only thread that changes the {@link TileGrid}, so collision and drawing only ever see whole chunks.<br>
+ * The state of each chunk is kept in arrays indexed by chunk, so updating every tick does not allocate.
+ * @author Connor Stewart
+ */
+public class ChunkStreamer {
+
+	/** The default maximum amount of chunks kept loaded at once. */
+	public static final int DEFAULT_BUDGET = 64;
+
+	/** The amount of chunks around the cameras visible area which are loaded ahead of time. */
+	private static final int MARGIN = 1;
+
+	/** The grid the chunks are loaded into. */
+	private final TileGrid tiles;
+
+	/** The tile layer drawing the grid, told when chunks are loaded or unloaded. */
+	private final TileLayer tileLayer;
+
+	/** The tile ids of each chunk stored row by row, null where a chunk has no tiles. */
+	private final int[][] sources;
+
+	/** The amount of chunk columns in the grid. */
+	private final int chunkColumns;
+
+	/** The amount of chunk rows in the grid. */
+	private final int chunkRows;
+
+	/** The images used for the tiles, by tile id. */
+	private final HashMap<Integer, Image> tileImages;
+
+	/** The first tile id used by the tileset. */
+	private final int firstGID;
+
+	/** The maximum amount of chunks kept loaded at once. */
+	private final int budget;
+
+	/** Marks the end of the recently wanted links. */
+	private static final int NONE = -1;
+
+	/** Whether each chunk is loaded. */
+	private final boolean[] resident;
+
+	/** The index of the next less recently wanted loaded chunk of each loaded chunk, or {@link #NONE} for the oldest. */
+	private final int[] older;
+
+	/** The index of the next more recently wanted loaded chunk of each loaded chunk, or {@link #NONE} for the newest. */
+	private final int[] newer;
+
+	/** The least recently wanted loaded chunk, or {@link #NONE} if none are loaded. */
+	private int oldest = NONE;
+
+	/** The most recently wanted loaded chunk, or {@link #NONE} if none are loaded. */
+	private int newest = NONE;
+
+	/** The amount of chunks loaded. */
+	private int residentCount;
+
+	/** Whether each chunk has been asked for but not loaded yet. */
+	private final boolean[] requested;
+
+	/** The update each chunk was last visible to the camera in, chunks visible in the current update are never unloaded. */
+	private final int[] wantedIn;
+
+	/** The amount of times {@link #update} has been called. */
+	private int updates;
+
+	/** The area visible to the camera, reused between updates. */
+	private final Rectangle2D.Float visibleArea = new Rectangle2D.Float();
+
+	/** The chunks built by the loader that are waiting to be added to the grid. */
+	private final ConcurrentLinkedQueue<BuiltChunk> built = new ConcurrentLinkedQueue<>();
+
+	/** Builds chunks in the background. */
+	private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Chunk loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Creates a chunk streamer for a streamed grid.
+	 * @param tiles the grid to load chunks into
+	 * @param tileLayer the tile layer drawing the grid
+	 * @param sources the tile ids of each chunk in the grid stored row by row, null where a chunk has no tiles
+	 * @param tileImages the images used for the tiles, by tile id
+	 * @param firstGID the first tile id used by the tileset
+	 * @param budget the maximum amount of chunks to keep loaded, more are kept if the camera can see more
+	 */
+	ChunkStreamer(TileGrid tiles, TileLayer tileLayer, int[][] sources, HashMap<Integer, Image> tileImages, int firstGID, int budget) {
+		this.tiles = tiles;
+		this.tileLayer = tileLayer;
+		this.sources = sources;
+		this.tileImages = tileImages;
+		this.firstGID = firstGID;
+		this.budget = budget;
+
+		chunkColumns = (tiles.getColumns() + TileGrid.CHUNK_SIZE - 1) / TileGrid.CHUNK_SIZE;
+		chunkRows = (tiles.getRows() + TileGrid.CHUNK_SIZE - 1) / TileGrid.CHUNK_SIZE;
+
+		int chunks = chunkColumns * chunkRows;
+		resident = new boolean[chunks];
+		older = new int[chunks];
+		newer = new int[chunks];
+		requested = new boolean[chunks];
+		wantedIn = new int[chunks];
+	}
+
+	/**
+	 * Loads the chunks around a point straight away, used before the first frame so the player has ground to stand on.
+	 * @param x the world x coordinate
+	 * @param y the world y coordinate
+	 */
+	void loadAround(float x, float y) {
+		int column = chunkColumn(x);
+		int row = chunkRow(y);
+
+		for (int r = Math.max(0, row - MARGIN); r <= Math.min(chunkRows - 1, row + MARGIN); r++) {
+			for (int c = Math.max(0, column - MARGIN); c <= Math.min(chunkColumns - 1, column + MARGIN); c++) {
+				int index = r * chunkColumns + c;
+				if (!resident[index])
+					install(new BuiltChunk(index, build(index)));
+			}
+		}
+	}
+
+	/**
+	 * Asks for the chunks around the camera to be loaded, adds any chunks which have finished loading to the grid and
+	 * unloads the least recently seen chunks while over budget. This must be called from the thread updating the level.
+	 * @param cam the camera to load chunks around
+	 */
+	public void update(Camera cam) {
+		Rectangle2D.Float area = cam.getVisibleArea(visibleArea);
+
+		int startColumn = Math.max(0, chunkColumn(area.x) - MARGIN);
+		int startRow = Math.max(0, chunkRow(area.y) - MARGIN);
+		int endColumn = Math.min(chunkColumns - 1, chunkColumn(area.x + area.width) + MARGIN);
+		int endRow = Math.min(chunkRows - 1, chunkRow(area.y + area.height) + MARGIN);
+
+		updates++;
+		for (int row = startRow; row <= endRow; row++) {
+			for (int column = startColumn; column <= endColumn; column++) {
+				int index = row * chunkColumns + column;
+				wantedIn[index] = updates;
+
+				if (resident[index]) {
+					markWanted(index);
+				} else if (!requested[index]) {
+					requested[index] = true;
+					loader.execute(() -> built.add(new BuiltChunk(index, build(index))));
+				}
+			}
+		}
+
+		BuiltChunk chunk;
+		while ((chunk = built.poll()) != null) {
+			requested[chunk.index] = false;
+			install(chunk);
+		}
+
+		int index = oldest;
+		while (residentCount > budget && index != NONE) {
+			int next = newer[index];
+
+			if (wantedIn[index] != updates) {
+				unlink(index);
+				resident[index] = false;
+				residentCount--;
+
+				tiles.removeChunk(chunkTileX(index), chunkTileY(index));
+				invalidate(index);
+			}
+
+			index = next;
+		}
+	}
+
+	/**
+	 * Stops the background loader, any chunks still being built are discarded.
+	 */
+	public void shutdown() {
+		loader.shutdownNow();
+	}
+
+	/**
+	 * @return the amount of chunks currently loaded
+	 */
+	public int getResidentCount() {
+		return residentCount;
+	}
+
+	/**
+	 * Creates the tiles of a chunk, this is called from the loader thread and must not touch the grid.
+	 * @param index the index of the chunk
+	 * @return the tiles in the chunk row by row
+	 */
+	private Tile[] build(int index) {
+		Tile[] cells = new Tile[TileGrid.CHUNK_SIZE * TileGrid.CHUNK_SIZE];
+		int[] source = sources[index];
+
+		if (source == null)
+			return cells;
+
+		int startX = chunkTileX(index);
+		int startY = chunkTileY(index);
+
+		for (int i = 0; i < cells.length; i++) {
+			int id = source[i];
+
+			if (id != 0)
+				cells[i] = new Tile(tileImages.get(id - firstGID), tiles.getTileWidth(), tiles.getTileHeight(),
+						startX + i % TileGrid.CHUNK_SIZE, startY + i / TileGrid.CHUNK_SIZE);
+		}
+
+		return cells;
+	}
+
+	/**
+	 * Adds a built chunk to the grid.
+	 * @param chunk the chunk to add
+	 */
+	private void install(BuiltChunk chunk) {
+		tiles.setChunk(chunkTileX(chunk.index), chunkTileY(chunk.index), chunk.cells);
+
+		if (resident[chunk.index]) {
+			markWanted(chunk.index);
+		} else {
+			resident[chunk.index] = true;
+			residentCount++;
+			linkNewest(chunk.index);
+		}
+
+		invalidate(chunk.index);
+	}
+
+	/**
+	 * Marks a loaded chunk as the most recently wanted, so it is the last to be unloaded.
+	 * @param index the index of the chunk
+	 */
+	private void markWanted(int index) {
+		if (index != newest) {
+			unlink(index);
+			linkNewest(index);
+		}
+	}
+
+	private void unlink(int index) {
+		if (older[index] != NONE)
+			newer[older[index]] = newer[index];
+		else
+			oldest = newer[index];
+
+		if (newer[index] != NONE)
+			older[newer[index]] = older[index];
+		else
+			newest = older[index];
+	}
+
+	private void linkNewest(int index) {
+		older[index] = newest;
+		newer[index] = NONE;
+
+		if (newest != NONE)
+			newer[newest] = index;
+		else
+			oldest = index;
+
+		newest = index;
+	}
+
+	/**
+	 * Tells the tile layer a chunk has changed.
+	 * @param index the index of the chunk
+	 */
+	private void invalidate(int index) {
+		tileLayer.invalidate(chunkTileX(index) * tiles.getTileWidth(), chunkTileY(index) * tiles.getTileHeight(),
+				TileGrid.CHUNK_SIZE * tiles.getTileWidth(), TileGrid.CHUNK_SIZE * tiles.getTileHeight());
+	}
+
+	private int chunkColumn(float x) {
+		return Math.floorDiv((int) Math.floor(x / tiles.getTileWidth()) - tiles.getMinX(), TileGrid.CHUNK_SIZE);
+	}
+
+	private int chunkRow(float y) {
+		return Math.floorDiv((int) Math.floor(y / tiles.getTileHeight()) - tiles.getMinY(), TileGrid.CHUNK_SIZE);
+	}
+
+	private int chunkTileX(int index) {
+		return tiles.getMinX() + (index % chunkColumns) * TileGrid.CHUNK_SIZE;
+	}
+
+	private int chunkTileY(int index) {
+		return tiles.getMinY() + (index / chunkColumns) * TileGrid.CHUNK_SIZE;
+	}
+
+	/**
+	 * A chunk of tiles built by the loader.
+	 */
+	private static class BuiltChunk {
+
+		/** The index of the chunk. */
+		final int index;
+
+		/** The tiles in the chunk row by row. */
+		final Tile[] cells;
+
+		BuiltChunk(int index, Tile[] cells) {
+			this.index = index;
+			this.cells = cells;
+		}
+	}
+}
@@ -2,6 +2,7 @@ package Game.Entities;
 
 import Game.Animation;
 import Game.Sprite;
+import Game.SpriteStore;
 
 import java.util.Arrays;
 
@@ -13,11 +14,12 @@ public class Coin extends Sprite {
 
     /**
      * Creates a new coin at the specified location.
+     * @param store the store to keep the coins state in
      * @param x the starting x coordinate of the coin
      * @param y the starting y coordinate of the coin
      */
-    public Coin(int x, int y) {
-        super(null, x, y,0,0,15,15);
+    public Coin(SpriteStore store, int x, int y) {
+        super(store, null, x, y,0,0,15,15);
         Animation spin = new Animation(true);
         spin.loadAnimationFromImages(Arrays.asList(
                 "images/coin/gold_coin_round_blank_1.png",
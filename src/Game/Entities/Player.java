@@ -1,18 +1,15 @@
 package Game.Entities;
 
-import Game.Camera;
-import Game.Physics.Point;
+import Game.Physics.TileGrid;
 import Game.Animation;
+import Game.Input.KeyStates;
 import Game.Sound.Sound;
 import Game.Sprite;
+import Game.SpriteStore;
 import Game.UI.Level;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.ConcurrentModificationException;
+import java.awt.event.KeyEvent;
 
 /**
  * This class represents the character the user controls.
@@ -38,14 +35,14 @@ public class Player extends Sprite {
     /** The state the player is currently in. */
     private PlayerState state = PlayerState.FALLING;
 
-	/** The level this player is in. */
+	/** The level this player is in, null when the level is being replayed without a window. */
 	private Level level;
 
     /** The timer for the grace period. */
     private float gracePeriodTimer = 0;
 
     /** The time since the player has stood on the ground. */
-	private long timeSinceOnGround = 0;
+	private float timeSinceOnGround = 0;
 
 	/** Whether the player has recently taken damage. */
 	private boolean inGracePeriod = false;
@@ -71,12 +68,13 @@ public class Player extends Sprite {
 
 	/**
 	 * Constructs a player which interacts with a given set of tiles.
+	 * @param store the store to keep the players state in
 	 * @param tiles the tiles that the player will interact with
 	 * @param x the players starting x coordinate
 	 * @param y the players starting y coordinate
 	 */
-    public Player(Collection<Tile> tiles, Level level, int x, int y) {
-    	super(tiles,x, y,-5,-17,15,32);
+    public Player(SpriteStore store, TileGrid tiles, Level level, int x, int y) {
+    	super(store,tiles,x, y,-5,-17,15,32);
 
     	this.level = level;
 
@@ -99,15 +97,22 @@ public class Player extends Sprite {
 		loseSound = new Sound("sounds\\lose.wav", Sound.Filter.None);
 		loseSound.adjustVolume(-20);
 
+		//pre-render the frames for facing left and the white frames used to flash the player when hit
+		for (Animation anim : new Animation[]{idleAnim, runAnim, jumpAnim, fallAnim}) {
+			anim.prepareEffect(Animation.Effect.FLIPPED);
+			anim.prepareEffect(Animation.Effect.WHITE_FLASH);
+			anim.prepareEffect(Animation.Effect.FLIPPED_WHITE_FLASH);
+		}
+
 		setAnimation(fallAnim);
     }
 
 	/**
 	 * Updates the player based on keys that are being pressed.
 	 * @param deltaTime the time since the last update
-	 * @param keysDown a list of keys currently being pressed
+	 * @param keys the keys held down during this update
 	 */
-	public void update(long deltaTime, ArrayList<String> keysDown) {
+	public void update(float deltaTime, KeyStates keys) {
         update(deltaTime);
         timeSinceOnGround += deltaTime;
 
@@ -120,44 +125,46 @@ public class Player extends Sprite {
 			}
 		}
 
-        dx = 0;
-
-        try {
-			for (String keyText : keysDown) {
-				switch (keyText) {
-					case "Space":
-						if (state == PlayerState.FALLING && timeSinceOnGround < FALLING_ALLOWANCE || state != PlayerState.FALLING && state != PlayerState.JUMPING) {
-							dy = -JUMP_SPEED;
-							changeState(PlayerState.JUMPING);
-							jumpAnim.restart();
-							jumpSound.play();
-						}
-						break;
-					case "D":
-						dx = WALK_SPEED;
-						drawFlipped = false;
-						if (state != PlayerState.FALLING && state != PlayerState.JUMPING)
-							changeState(PlayerState.WALKING);
-
-						break;
-					case "A":
-						dx = -WALK_SPEED;
-						drawFlipped = true;
-
-						if (state != PlayerState.FALLING && state != PlayerState.JUMPING)
-							changeState(PlayerState.WALKING);
-
-						break;
-				}
+        setDx(0);
+
+		if (keys.isDown(KeyEvent.VK_SPACE)) {
+			if (state == PlayerState.FALLING && timeSinceOnGround < FALLING_ALLOWANCE || state != PlayerState.FALLING && state != PlayerState.JUMPING) {
+				setDy(-JUMP_SPEED);
+				changeState(PlayerState.JUMPING);
+				jumpAnim.restart();
+				jumpSound.play();
 			}
-		} catch (ConcurrentModificationException ignored) {
-        	//ignore
 		}
 
-		if (state != PlayerState.FALLING && state != PlayerState.JUMPING && !keysDown.contains("D") && !keysDown.contains("A"))
+		//when both directions are held the one pressed last wins
+		boolean right = keys.isDown(KeyEvent.VK_D);
+		boolean left = keys.isDown(KeyEvent.VK_A);
+		if (right && left) {
+			if (keys.pressedAfter(KeyEvent.VK_D, KeyEvent.VK_A))
+				left = false;
+			else
+				right = false;
+		}
+
+		if (right) {
+			setDx(WALK_SPEED);
+			setDrawFlipped(false);
+			if (state != PlayerState.FALLING && state != PlayerState.JUMPING)
+				changeState(PlayerState.WALKING);
+		}
+
+		if (left) {
+			setDx(-WALK_SPEED);
+			setDrawFlipped(true);
+
+			if (state != PlayerState.FALLING && state != PlayerState.JUMPING)
+				changeState(PlayerState.WALKING);
+		}
+
+		if (state != PlayerState.FALLING && state != PlayerState.JUMPING && !right && !left)
 			changeState(PlayerState.STANDING);
 
-		if (state == PlayerState.JUMPING && dy > 0)
+		if (state == PlayerState.JUMPING && getDy() > 0)
 			changeState(PlayerState.FALLING);
 
 		switch (state) {
@@ -168,18 +175,18 @@ public class Player extends Sprite {
 				setAnimation(fallAnim);
 				break;
 			case STANDING:
-				dy = GRAVITY_INCREASE;
+				setDy(GRAVITY_INCREASE);
 				setAnimation(idleAnim);
 				break;
 			case WALKING:
-                dy = GRAVITY_INCREASE;
+                setDy(GRAVITY_INCREASE);
 				setAnimation(runAnim);
 				break;
 		}
 
-		float yBefore = y;
-		movePlayer(dx, dy);
-		float yAfter = y;
+		float yBefore = getY();
+		movePlayer(getDx(), getDy());
+		float yAfter = getY();
 
 		if (yAfter > yBefore)
 			changeState(PlayerState.FALLING);
@@ -208,6 +215,8 @@ public class Player extends Sprite {
 
 		float newRectX = 0;
 		float newRectY = 0;
+		float x = getX();
+		float y = getY();
 
 		collidedTile = colliding(xChange, 0);
 		//if moving the x axis caused a collision
@@ -216,7 +225,7 @@ public class Player extends Sprite {
 			float tileWidth = collidedTile.getWidth();
 
 			if (x < tileX) { //right collision
-				newRectX = collidedTile.getX() - rectWidth;
+				newRectX = collidedTile.getX() - getRectWidth();
 			} else if (x > tileX) { //left collision
 				newRectX = tileX + tileWidth;
 			}
@@ -232,15 +241,15 @@ public class Player extends Sprite {
 
 			//move along y axis
 			if (y < tileY) { //top collision
-				newRectY = tileY - rectHeight;
+				newRectY = tileY - getRectHeight();
                 timeSinceOnGround = 0;
-				if (dx != 0)
+				if (getDx() != 0)
 					changeState(PlayerState.WALKING);
 				else
 					changeState(PlayerState.STANDING);
 			} else if (y > tileY) { //bottom collision
 				newRectY = tileY + tileHeight;
-				dy = 0;
+				setDy(0);
 				changeState(PlayerState.FALLING);
 			}
 		} else {
@@ -248,75 +257,21 @@ public class Player extends Sprite {
 		}
 
 		if (newRectX != 0) {
-			x = newRectX;
+			setX(newRectX);
 		}
 
 		if (newRectY != 0) {
-			y = newRectY;
+			setY(newRectY);
 		}
 	}
 
 	@Override
-	public void draw(Camera cam, float alpha, boolean drawCollisionRectangles) {
-		Image image = getImage();
-		int imageWidth = image.getWidth(null);
-		int imageHeight = image.getHeight(null);
-
-		if (imageWidth > 0 && imageHeight > 0 && inGracePeriod)
-			image = makeWhiteImage(image, imageWidth, imageHeight);
-
-		Graphics2D g = cam.getGraphics();
-
-		Point interpolatedPoint = cam.interpolatePosition(new Point(lastX, lastY), new Point(x, y), alpha);
-		Point cameraPoint = cam.toCameraCoordinates(interpolatedPoint);
-
-		saveY();
-		saveX();
-
-		int drawY = (int) cameraPoint.y;
-		int drawX = (int) cameraPoint.x;
-
-		if (drawFlipped)
-			g.drawImage(image, drawX + imageWidth + xOffSet, drawY + yOffSet, -imageWidth, imageHeight, null);
-		else
-			g.drawImage(image, drawX + xOffSet, drawY + yOffSet, imageWidth, imageHeight, null);
-
- 		if (drawCollisionRectangles) {
-			g.setColor(Color.RED);
-			Game.Physics.Point rectPoint = new Game.Physics.Point(x, y);
-			Point camRectPoint = cam.toCameraCoordinates(rectPoint);
-			g.drawRect((int)camRectPoint.x, (int)camRectPoint.y, (int)rectWidth, (int)rectHeight);
-		}
-	}
-
-	/**
-	 * Turns all the non-transparent pixels in an image white by looping through the individual pixels, changing them white but ignoring the transparency.
-	 * @param image the image to use as a base
-	 * @param imageWidth the images width
-	 * @param imageHeight the images height
-	 * @return a white version of the image
-	 */
-	private Image makeWhiteImage(Image image, int imageWidth, int imageHeight) {
-		BufferedImage bimage = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-		Graphics2D bGr = bimage.createGraphics();
-		bGr.drawImage(image, 0, 0, null);
-		bGr.dispose();
-
-		int width = bimage.getWidth();
-		int height = bimage.getHeight();
-		WritableRaster raster = bimage.getRaster();
-
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				int[] pixels = raster.getPixel(x, y, (int[]) null);
-				pixels[0] = 255;
-				pixels[1] = 255;
-				pixels[2] = 255;
-				raster.setPixel(x, y, pixels);
-			}
-		}
+	protected Image getDrawImage() {
+		//flash white while in the grace period after being hit
+		if (inGracePeriod && getImageWidth() > 0 && getImageHeight() > 0)
+			return getImage(isDrawFlipped() ? Animation.Effect.FLIPPED_WHITE_FLASH : Animation.Effect.WHITE_FLASH);
 
-		return bimage;
+		return super.getDrawImage();
 	}
 
 	/**
@@ -335,7 +290,8 @@ public class Player extends Sprite {
 					hitSound.play();
 				} else {
 					loseSound.play();
-					level.lose();
+					if (level != null)
+						level.lose();
 				}
 			}
 
@@ -350,7 +306,8 @@ public class Player extends Sprite {
 
 		if (collidedWith instanceof Signpost) {
 			winSound.play();
-			level.win();
+			if (level != null)
+				level.win();
 		}
 
 		return false;
@@ -2,6 +2,7 @@ package Game.Entities;
 
 import Game.Animation;
 import Game.Sprite;
+import Game.SpriteStore;
 
 import java.util.Collections;
 
@@ -13,11 +14,12 @@ public class Signpost extends Sprite {
 
     /**
      * Creates a signpost at the given x and y coordinates.
+     * @param store the store to keep the signposts state in
      * @param x the starting x coordinate of the signpost
      * @param y the starting y coordinate of the signpost
      */
-    public Signpost(int x, int y) {
-        super(null, x, y,0,0,20,30);
+    public Signpost(SpriteStore store, int x, int y) {
+        super(store, null, x, y,0,0,20,30);
         Animation sprite = new Animation(true);
         sprite.loadAnimationFromImages(Collections.singletonList("images/signpost.png"), 0, 20, 30);
         setAnimation(sprite);
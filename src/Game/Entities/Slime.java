@@ -2,10 +2,11 @@ package Game.Entities;
 
 import Game.Animation;
 import Game.Camera;
-import Game.Physics.Line;
+import Game.Physics.LineOfSight;
+import Game.Physics.TileGrid;
 import Game.Sprite;
+import Game.SpriteStore;
 
-import java.util.Collection;
 import java.util.Random;
 
 /**
@@ -17,7 +18,7 @@ import java.util.Random;
 public class Slime extends Sprite {
 
 	/** Used for randomising movement. */
-	private Random random = new Random();
+	private final Random random;
 
 	/** Whether this slime moved right last update. */
 	private boolean movedRightLastUpdate;
@@ -30,12 +31,16 @@ public class Slime extends Sprite {
 
 	/**
 	 * Creates a new slime at the given world position.
+	 * @param store the store to keep the slimes state in
 	 * @param tiles tiles the slime must interact with
 	 * @param x the slimes starting x coordinate
 	 * @param y the slimes starting y coordinate
+	 * @param seed the seed for the slimes random movement, so the same seed always moves the same way
 	 */
-	public Slime(Collection<Tile> tiles, int x, int y) {
-		super(tiles,x,y,-20,-10,10,12);
+	public Slime(SpriteStore store, TileGrid tiles, int x, int y, long seed) {
+		super(store,tiles,x,y,-20,-10,10,12);
+		random = new Random(seed);
+		setFriction(FRICTION);
 		Animation idle = new Animation(true);
 		idle.loadAnimationFromSheet("images/slime/greenIdle.png", 10, 1, 100);
 		setAnimation(idle);
@@ -44,44 +49,37 @@ public class Slime extends Sprite {
 	@Override
 	public void update(float elapsedTime) {
 		super.update(elapsedTime);
+		store.applyFriction(slot);
+		move(elapsedTime, tiles.getLineOfSightCache());
+	}
 
-		//apply friction
-		if (dx != 0)
-			if (dx > 0)
-				dx = (dx - FRICTION < 0) ? 0 : (dx -= FRICTION);
-			else
-				dx = (dx + FRICTION > 0) ? 0 : (dx += FRICTION);
-
-		if (dx == 0) {
+	@Override
+	public void move(float elapsedTime, LineOfSight sight) {
+		if (getDx() == 0) {
 			boolean moveRight = random.nextBoolean(); //random between moving left or right
-			if (canSee(player)) //if the player is in the slimes vision
-				if (player.getY() + height <= y + height) //if the players position is higher or the same compared to the slime
-					moveRight = player.getX() > x;
+			if (canSee(player, sight)) //if the player is in the slimes vision
+				if (player.getY() + getHeight() <= getY() + getHeight()) //if the players position is higher or the same compared to the slime
+					moveRight = player.getX() > getX();
 
 			if (moveRight)
-				dx = MOVE_SPEED * random.nextFloat();
+				setDx(MOVE_SPEED * random.nextFloat());
 			else
-				dx = -(MOVE_SPEED * random.nextFloat());
+				setDx(-(MOVE_SPEED * random.nextFloat()));
 
 			movedRightLastUpdate = moveRight;
 		}
 
 		//apply gravity whenever
-		moveSprite(0, dy);
+		moveSprite(0, getDy());
 
 		//only move the slime if there will be a tile under it
-		float checkX = x + dx; //check left hand side if moved left
+		float dx = getDx();
+		float checkX = getX() + dx; //check left hand side if moved left
 		if (movedRightLastUpdate)
-			checkX += rectWidth; //check right hand side if moved right
+			checkX += getRectWidth(); //check right hand side if moved right
 
-		float checkY = y + dy + rectHeight + 1; //check one pixel under the sprite
-		for (Tile tile: tiles) {
-			if (checkX > tile.getX() && checkX < tile.getX() + tile.getWidth()) {
-				if (checkY > tile.getY() && checkY < tile.getY() + tile.getHeight()) {
-					moveSprite(dx, 0);
-					break;
-				}
-			}
-		}
+		float checkY = getY() + getDy() + getRectHeight() + 1; //check one pixel under the sprite
+		if (tiles.getAt(checkX, checkY) != null)
+			moveSprite(dx, 0);
 	}
-}
\ No newline at end of file
+}
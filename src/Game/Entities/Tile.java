@@ -71,20 +71,23 @@ public class Tile {
 	 */
 	public void draw(Camera cam, boolean drawLines) {
 		Graphics2D g = cam.getGraphics();
-		Point camCords = cam.toCameraCoordinates(new Point(worldX, worldY));
-		g.drawImage(tileImage, (int)camCords.x,  (int)camCords.y, (int)tileWidth, (int)tileHeight, null);
+		g.drawImage(tileImage, (int)cam.toCameraX(worldX),  (int)cam.toCameraY(worldY), (int)tileWidth, (int)tileHeight, null);
 
 		if (drawLines) {
 			for (Line line : lines) {
 				g.setColor(Color.MAGENTA);
-				Point p1 = cam.toCameraCoordinates(line.getP1());
-				Point p2 = cam.toCameraCoordinates(line.getP2());
+				Point p1 = line.getP1();
+				Point p2 = line.getP2();
 
-				g.drawLine((int)p1.x, (int)p1.y, (int)p2.x, (int)p2.y);
+				g.drawLine((int)cam.toCameraX(p1.x), (int)cam.toCameraY(p1.y), (int)cam.toCameraX(p2.x), (int)cam.toCameraY(p2.y));
 			}
 		}
 	}
 
+	public Image getImage() {
+		return tileImage;
+	}
+
 	public int getWidth() {
 		return (int) tileWidth;
 	}
@@ -0,0 +1,183 @@
+package Game;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable set of animation frames that can be shared between any number of animations.<br>
+ * The frames are packed side by side into a single atlas image, each frame is a view of part of the atlas. In headless
+ * mode a frame set only holds the sizes of its frames, see {@link Assets#isHeadless()}.
+ * @author Connor Stewart
+ */
+public final class FrameSet {
+
+	/** A frame set with no frames. */
+	static final FrameSet EMPTY = new FrameSet(new BufferedImage[0]);
+
+	/** The frames, each a view into the atlas. */
+	private final BufferedImage[] frames;
+
+	/** The width of each frame. */
+	private final int[] widths;
+
+	/** The height of each frame. */
+	private final int[] heights;
+
+	/** Copies of these frames with effects applied, created the first time they are asked for. */
+	private final ConcurrentHashMap<Animation.Effect, FrameSet> effects = new ConcurrentHashMap<>();
+
+	/** Whether the frames only have sizes and no images. */
+	private final boolean sizesOnly;
+
+	/**
+	 * Creates a frame set with no images, where every frame is the same size.
+	 * @param count the amount of frames
+	 * @param width the width of each frame
+	 * @param height the height of each frame
+	 * @return the frame set
+	 */
+	static FrameSet ofSize(int count, int width, int height) {
+		Dimension[] sizes = new Dimension[count];
+		Arrays.fill(sizes, new Dimension(width, height));
+		return ofSizes(sizes);
+	}
+
+	/**
+	 * Creates a frame set with no images.
+	 * @param sizes the size of each frame in order
+	 * @return the frame set
+	 */
+	static FrameSet ofSizes(Dimension[] sizes) {
+		return (sizes.length == 0) ? EMPTY : new FrameSet(sizes);
+	}
+
+	private FrameSet(Dimension[] sizes) {
+		frames = new BufferedImage[sizes.length];
+		widths = new int[sizes.length];
+		heights = new int[sizes.length];
+		sizesOnly = true;
+
+		for (int i = 0; i < sizes.length; i++) {
+			widths[i] = sizes[i].width;
+			heights[i] = sizes[i].height;
+		}
+	}
+
+	/**
+	 * Packs the given images into an atlas.
+	 * @param images the frames in order
+	 */
+	FrameSet(BufferedImage[] images) {
+		frames = new BufferedImage[images.length];
+		widths = new int[images.length];
+		heights = new int[images.length];
+		sizesOnly = false;
+
+		int atlasWidth = 0;
+		int atlasHeight = 0;
+		for (int i = 0; i < images.length; i++) {
+			widths[i] = images[i].getWidth();
+			heights[i] = images[i].getHeight();
+			atlasWidth += widths[i];
+			atlasHeight = Math.max(atlasHeight, heights[i]);
+		}
+
+		if (images.length == 0)
+			return;
+
+		BufferedImage atlas = Assets.createCompatibleImage(atlasWidth, atlasHeight, Transparency.TRANSLUCENT);
+		Graphics2D g = atlas.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+
+		int x = 0;
+		for (int i = 0; i < images.length; i++) {
+			g.drawImage(images[i], x, 0, null);
+			frames[i] = atlas.getSubimage(x, 0, widths[i], heights[i]);
+			x += widths[i];
+		}
+
+		g.dispose();
+	}
+
+	/**
+	 * @return the amount of frames
+	 */
+	public int size() {
+		return frames.length;
+	}
+
+	/**
+	 * @param index the index of the frame
+	 * @return the frame at the index, null if the frames only have sizes
+	 */
+	public BufferedImage getFrame(int index) {
+		return frames[index];
+	}
+
+	/**
+	 * @param index the index of the frame
+	 * @return the width of the frame at the index
+	 */
+	public int getWidth(int index) {
+		return widths[index];
+	}
+
+	/**
+	 * @param index the index of the frame
+	 * @return the height of the frame at the index
+	 */
+	public int getHeight(int index) {
+		return heights[index];
+	}
+
+	/**
+	 * Gets a copy of these frames with an effect applied, creating it the first time it is asked for.
+	 * @param effect the effect to apply
+	 * @return the frames with the effect applied
+	 */
+	FrameSet withEffect(Animation.Effect effect) {
+		if (sizesOnly)
+			return this;
+
+		return effects.computeIfAbsent(effect, k -> {
+			BufferedImage[] result = new BufferedImage[frames.length];
+			for (int i = 0; i < frames.length; i++)
+				result[i] = createEffectFrame(frames[i], effect);
+
+			return new FrameSet(result);
+		});
+	}
+
+	/**
+	 * Creates a copy of a frame with an effect applied.
+	 * @param frame the frame to copy
+	 * @param effect the effect to apply
+	 * @return the new frame
+	 */
+	private static BufferedImage createEffectFrame(BufferedImage frame, Animation.Effect effect) {
+		int width = frame.getWidth();
+		int height = frame.getHeight();
+
+		BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = result.createGraphics();
+		if (effect.isFlipped())
+			g.drawImage(frame, width, 0, -width, height, null);
+		else
+			g.drawImage(frame, 0, 0, null);
+		g.dispose();
+
+		if (effect.isWhite()) {
+			int[] pixels = result.getRGB(0, 0, width, height, null, 0, width);
+
+			//keep the transparency but make the colour white
+			for (int i = 0; i < pixels.length; i++)
+				pixels[i] = (pixels[i] & 0xFF000000) | 0x00FFFFFF;
+
+			result.setRGB(0, 0, width, height, pixels, 0, width);
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,115 @@
+package Game.Input;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock free queue of key events, written by the AWT event thread and read by the thread updating the game.<br>
+ * The queue is a fixed size ring buffer which only supports a single writer and a single reader, so neither side ever
+ * blocks or allocates. Each event records when it happened, so it is applied to the update it happened before.
+ * @author Connor Stewart
+ */
+public class InputQueue {
+
+	/** The default amount of events the queue can hold, this must be a power of two. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** The key code of each event, stored in the ring. */
+	private final int[] keyCodes;
+
+	/** Whether each event was a key being pressed or released. */
+	private final boolean[] pressed;
+
+	/** The {@link System#nanoTime()} each event happened at. */
+	private final long[] times;
+
+	/** Used to wrap a position around the ring. */
+	private final int mask;
+
+	/** The position of the next event to read, only changed by the reader. */
+	private final AtomicLong head = new AtomicLong();
+
+	/** The position of the next event to write, only changed by the writer. */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Creates an empty queue.
+	 * @param capacity the amount of events the queue can hold, this must be a power of two
+	 */
+	public InputQueue(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("The capacity must be a power of two.");
+
+		keyCodes = new int[capacity];
+		pressed = new boolean[capacity];
+		times = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Adds an event to the queue, this must only be called by the writing thread.
+	 * @param keyCode the key code of the key, see {@link java.awt.event.KeyEvent}
+	 * @param pressed whether the key was pressed or released
+	 * @param time the {@link System#nanoTime()} the event happened at
+	 * @return false if the queue was full and the event was dropped
+	 */
+	public boolean offer(int keyCode, boolean pressed, long time) {
+		long position = tail.get();
+
+		if (position - head.get() > mask)
+			return false;
+
+		int index = (int) (position & mask);
+		keyCodes[index] = keyCode;
+		this.pressed[index] = pressed;
+		times[index] = time;
+
+		//publish the event to the reader after it has been written
+		tail.lazySet(position + 1);
+		return true;
+	}
+
+	/**
+	 * Applies every event that happened up to a time to a set of key states, this must only be called by the reading thread.
+	 * Later events are left in the queue for the next update.
+	 * @param keys the key states to apply the events to
+	 * @param until the {@link System#nanoTime()} to apply events up to
+	 * @return the amount of events applied
+	 */
+	public int drainTo(KeyStates keys, long until) {
+		return drainTo(keys, until, null);
+	}
+
+	/**
+	 * Applies every event that happened up to a time to a set of key states, also adding them to a recording.
+	 * @param keys the key states to apply the events to
+	 * @param until the {@link System#nanoTime()} to apply events up to
+	 * @param recording the recording to add the events to, or null to not record them
+	 * @return the amount of events applied
+	 */
+	public int drainTo(KeyStates keys, long until, InputRecording recording) {
+		long position = head.get();
+		long end = tail.get();
+		int count = 0;
+
+		while (position < end) {
+			int index = (int) (position & mask);
+			if (times[index] - until > 0)
+				break;
+
+			if (pressed[index])
+				keys.press(keyCodes[index]);
+			else
+				keys.release(keyCodes[index]);
+
+			if (recording != null)
+				recording.record(keyCodes[index], pressed[index]);
+
+			position++;
+			count++;
+		}
+
+		//let the writer reuse the slots that have been read
+		head.lazySet(position);
+		return count;
+	}
+}
@@ -0,0 +1,293 @@
+package Game.Input;
+
+import Game.Entities.Player;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * A recording of the key events applied to each update of a level, used to replay a play exactly.<br>
+ * Along with the input, the map, the seed its slimes were given, the update rate and the radius sprites were active
+ * in are recorded. Once the play has finished the players final position, coins and life are recorded too, so a replay
+ * can be checked against it.
+ * <br>Format (big endian):
+ * <br>int magic, int version, string map location, long seed, int update rate, int active radius, int tick count
+ * <br>int event data length, then for each tick: the amount of events, then each event as key code * 2 + 1 if pressed
+ * <br>float final x, float final y, int coins, int life
+ * <br>Counts and events are stored as unsigned variable length ints, so a tick with no events is a single byte.
+ * @author Connor Stewart
+ */
+public class InputRecording {
+
+	/** Marks the start of a recording file ("PREC"). */
+	private static final int MAGIC = 0x50524543;
+
+	/** The version of the format, increased whenever the format changes. */
+	private static final int VERSION = 2;
+
+	/** The location of the map that was played. */
+	private final String mapLocation;
+
+	/** The seed the maps slimes were given. */
+	private final long seed;
+
+	/** The amount of updates per second. */
+	private final int updateRate;
+
+	/** The distance from the player sprites slept beyond, see {@link Game.Simulation#getActiveRadius()}. */
+	private final int activeRadius;
+
+	/** The encoded events of every tick. */
+	private byte[] data;
+
+	/** The length of the encoded events. */
+	private int length;
+
+	/** The amount of ticks recorded. */
+	private int ticks;
+
+	/** The events of the tick being recorded, each encoded as key code * 2 + 1 if pressed. */
+	private int[] tickEvents = new int[16];
+
+	/** The amount of events in the tick being recorded. */
+	private int tickEventCount;
+
+	/** The position in the encoded events of the next tick to replay. */
+	private int position;
+
+	/** The amount of ticks replayed. */
+	private int ticksPlayed;
+
+	/** The players final x coordinate. */
+	private float finalX;
+
+	/** The players final y coordinate. */
+	private float finalY;
+
+	/** The players final amount of coins. */
+	private int finalCoins;
+
+	/** The players final life points. */
+	private int finalLife;
+
+	/**
+	 * Starts a new recording.
+	 * @param mapLocation the location of the map being played
+	 * @param seed the seed the maps slimes were given
+	 * @param updateRate the amount of updates per second
+	 * @param activeRadius the distance from the player sprites sleep beyond
+	 */
+	public InputRecording(String mapLocation, long seed, int updateRate, int activeRadius) {
+		this.mapLocation = mapLocation;
+		this.seed = seed;
+		this.updateRate = updateRate;
+		this.activeRadius = activeRadius;
+		this.data = new byte[1024];
+	}
+
+	/**
+	 * Adds an event to the tick being recorded.
+	 * @param keyCode the key code of the key
+	 * @param pressed whether the key was pressed or released
+	 */
+	public void record(int keyCode, boolean pressed) {
+		if (tickEventCount == tickEvents.length)
+			tickEvents = Arrays.copyOf(tickEvents, tickEventCount * 2);
+
+		tickEvents[tickEventCount++] = (keyCode << 1) | (pressed ? 1 : 0);
+	}
+
+	/**
+	 * Finishes recording a tick, any events recorded after this belong to the next tick.
+	 */
+	public void endTick() {
+		writeVarInt(tickEventCount);
+		for (int i = 0; i < tickEventCount; i++)
+			writeVarInt(tickEvents[i]);
+
+		tickEventCount = 0;
+		ticks++;
+	}
+
+	/**
+	 * Records the players state at the end of the play.
+	 * @param player the player
+	 */
+	public void finish(Player player) {
+		finalX = player.getX();
+		finalY = player.getY();
+		finalCoins = player.getCoins();
+		finalLife = player.getLife();
+	}
+
+	/**
+	 * Goes back to the first tick, so the recording can be replayed again.
+	 */
+	public void rewind() {
+		position = 0;
+		ticksPlayed = 0;
+	}
+
+	/**
+	 * Applies the events of the next recorded tick to a set of key states.<br>
+	 * Call {@link #rewind()} first to replay from the start.
+	 * @param keys the key states to apply the events to
+	 * @return false if every tick has already been replayed
+	 */
+	public boolean playTick(KeyStates keys) {
+		if (ticksPlayed >= ticks)
+			return false;
+
+		int count = readVarInt();
+		for (int i = 0; i < count; i++) {
+			int event = readVarInt();
+
+			if ((event & 1) != 0)
+				keys.press(event >>> 1);
+			else
+				keys.release(event >>> 1);
+		}
+
+		ticksPlayed++;
+		return true;
+	}
+
+	/**
+	 * Checks if a player ended up in the same state as the recorded player.
+	 * @param player the player to check
+	 * @return whether the position, coins and life all match
+	 */
+	public boolean matches(Player player) {
+		return Float.compare(player.getX(), finalX) == 0 && Float.compare(player.getY(), finalY) == 0
+				&& player.getCoins() == finalCoins && player.getLife() == finalLife;
+	}
+
+	/**
+	 * Writes the recording to a file.
+	 * @param file the file to write to
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(File file) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs())
+			throw new IOException("Could not create " + parent);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(mapLocation);
+			out.writeLong(seed);
+			out.writeInt(updateRate);
+			out.writeInt(activeRadius);
+			out.writeInt(ticks);
+
+			out.writeInt(length);
+			out.write(data, 0, length);
+
+			out.writeFloat(finalX);
+			out.writeFloat(finalY);
+			out.writeInt(finalCoins);
+			out.writeInt(finalLife);
+		}
+	}
+
+	/**
+	 * Reads a recording from a file, ready to be replayed.
+	 * @param file the file to read
+	 * @return the recording
+	 * @throws IOException if the file could not be read or is not a recording
+	 */
+	public static InputRecording read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " is not a recording.");
+			if (in.readInt() != VERSION)
+				throw new IOException(file + " was recorded by a different version.");
+
+			InputRecording recording = new InputRecording(in.readUTF(), in.readLong(), in.readInt(), in.readInt());
+			recording.ticks = in.readInt();
+
+			recording.length = in.readInt();
+			recording.data = new byte[recording.length];
+			in.readFully(recording.data);
+
+			recording.finalX = in.readFloat();
+			recording.finalY = in.readFloat();
+			recording.finalCoins = in.readInt();
+			recording.finalLife = in.readInt();
+			return recording;
+		}
+	}
+
+	private void writeVarInt(int value) {
+		while (true) {
+			if (length == data.length)
+				data = Arrays.copyOf(data, length * 2);
+
+			if ((value & ~0x7F) == 0) {
+				data[length++] = (byte) value;
+				return;
+			}
+
+			data[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+	}
+
+	private int readVarInt() {
+		int value = 0;
+		int shift = 0;
+
+		while (true) {
+			byte b = data[position++];
+			value |= (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0)
+				return value;
+
+			shift += 7;
+		}
+	}
+
+	/**
+	 * @return the location of the map that was played
+	 */
+	public String getMapLocation() {
+		return mapLocation;
+	}
+
+	/**
+	 * @return the seed the maps slimes were given
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the amount of updates per second
+	 */
+	public int getUpdateRate() {
+		return updateRate;
+	}
+
+	/**
+	 * @return the distance from the player sprites slept beyond
+	 */
+	public int getActiveRadius() {
+		return activeRadius;
+	}
+
+	/**
+	 * @return the amount of ticks recorded
+	 */
+	public int getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return a description of the players final state
+	 */
+	public String describeFinalState() {
+		return "x " + finalX + ", y " + finalY + ", coins " + finalCoins + ", life " + finalLife;
+	}
+}
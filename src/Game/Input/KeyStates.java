@@ -0,0 +1,100 @@
+package Game.Input;
+
+import java.util.Arrays;
+
+/**
+ * The keys being held down during an update, stored as a bit per key code.<br>
+ * A key which was pressed and released again between two updates still counts as down for the update after it, so
+ * quick taps are never missed. The order keys were pressed in is also kept, so when two keys that cancel each other out
+ * are held the one pressed last can win.
+ * @author Connor Stewart
+ */
+public class KeyStates {
+
+	/** The amount of key codes which can be stored, any higher codes are ignored. */
+	private static final int KEY_CODES = 1 << 16;
+
+	/** A bit for each key code which is held down. */
+	private final long[] down = new long[KEY_CODES / 64];
+
+	/** A bit for each key code which has been pressed since the last update. */
+	private final long[] pressed = new long[KEY_CODES / 64];
+
+	/** The value of {@link #presses} when each key code was last pressed while up. */
+	private final int[] pressOrder = new int[KEY_CODES];
+
+	/** The amount of key presses so far. */
+	private int presses;
+
+	/**
+	 * Marks a key as held down.
+	 * @param keyCode the key code, see {@link java.awt.event.KeyEvent}
+	 */
+	public void press(int keyCode) {
+		if (keyCode < 0 || keyCode >= KEY_CODES)
+			return;
+
+		//keys repeat while held, only the first press counts towards the order
+		if ((down[keyCode >>> 6] & (1L << keyCode)) == 0)
+			pressOrder[keyCode] = ++presses;
+
+		down[keyCode >>> 6] |= 1L << keyCode;
+		pressed[keyCode >>> 6] |= 1L << keyCode;
+	}
+
+	/**
+	 * Marks a key as no longer held down.
+	 * @param keyCode the key code, see {@link java.awt.event.KeyEvent}
+	 */
+	public void release(int keyCode) {
+		if (keyCode < 0 || keyCode >= KEY_CODES)
+			return;
+
+		down[keyCode >>> 6] &= ~(1L << keyCode);
+	}
+
+	/**
+	 * Forgets which keys were pressed since the last update, called before the next updates events are applied.
+	 */
+	public void nextUpdate() {
+		for (int i = 0; i < pressed.length; i++)
+			pressed[i] = 0;
+	}
+
+	/**
+	 * Releases every key.
+	 */
+	public void clear() {
+		for (int i = 0; i < down.length; i++) {
+			down[i] = 0;
+			pressed[i] = 0;
+		}
+		Arrays.fill(pressOrder, 0);
+		presses = 0;
+	}
+
+	/**
+	 * Checks if a key is held down, or was pressed since the last update.
+	 * @param keyCode the key code, see {@link java.awt.event.KeyEvent}
+	 * @return whether the key is down
+	 */
+	public boolean isDown(int keyCode) {
+		if (keyCode < 0 || keyCode >= KEY_CODES)
+			return false;
+
+		return ((down[keyCode >>> 6] | pressed[keyCode >>> 6]) & (1L << keyCode)) != 0;
+	}
+
+	/**
+	 * Checks if a key was pressed more recently than another.
+	 * @param keyCode the key code, see {@link java.awt.event.KeyEvent}
+	 * @param otherKeyCode the key code to compare against
+	 * @return whether the first key was pressed after the other one
+	 */
+	public boolean pressedAfter(int keyCode, int otherKeyCode) {
+		if (keyCode < 0 || keyCode >= KEY_CODES || otherKeyCode < 0 || otherKeyCode >= KEY_CODES)
+			return false;
+
+		return pressOrder[keyCode] - pressOrder[otherKeyCode] > 0;
+	}
+}
@@ -1,21 +1,20 @@
 package Game;
 
 import Game.Entities.*;
+import Game.Physics.TileGrid;
 import Game.UI.Level;
-import com.sun.javaws.exceptions.InvalidArgumentException;
-import javafx.util.Pair;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
-import javax.swing.*;
 import java.awt.*;
 import java.io.*;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Random;
 
 /**
- * This class is responsible for loading JSON files generated by Tiled.
+ * This class is responsible for loading JSON files generated by Tiled.<br>
+ * Infinite maps are supported, their tiles are streamed in and out around the camera by a {@link ChunkStreamer}.
  * @author Connor Stewart
  */
 public class Map {
@@ -29,76 +28,144 @@ public class Map {
     /** The width of the map. */
     private int width;
 
-    /** The tiles in the map. */
-    private HashMap<Pair<Integer, Integer>, Tile> tiles = new HashMap<>();
+    /** The lowest tile x coordinate in the map, only infinite maps go below zero. */
+    private int minX = 0;
+
+    /** The lowest tile y coordinate in the map, only infinite maps go below zero. */
+    private int minY = 0;
+
+    /** The tiles in the map, indexed by their tile coordinates. */
+    private TileGrid tiles;
+
+    /** The pre-rendered image chunks of the tiles. */
+    private TileLayer tileLayer;
+
+    /** Loads the chunks of an infinite map around the camera, null for finite maps. */
+    private ChunkStreamer streamer;
 
     /** The sprites in the map. */
     private ArrayList<Sprite> sprites = new ArrayList<>();
 
+    /** The store holding the state of the player and sprites. */
+    private final SpriteStore store = new SpriteStore();
+
     /** The user controlled player. */
 	private Player player;
 
+    /** The seed the slimes random seeds were made from. */
+    private final long seed;
+
     /**
-     * Loads the given JSON map.
+     * Loads the given JSON map, or its compiled version if it has been compiled, see {@link MapCompiler}.
      * @param jsonFileLocation the location of the map
      * @param level a reference to the level this map has been loaded for to be passed to the player
-     * @throws InvalidArgumentException throws this exception if the map is an invalid format
+     * @throws MapFormatException throws this exception if the map is an invalid format
      */
-	public Map(String jsonFileLocation, Level level) throws InvalidArgumentException {
-        String jsonTextContent = null;
-
-        try {
-            InputStream is = new FileInputStream(jsonFileLocation);
-            BufferedReader buf = new BufferedReader(new InputStreamReader(is));
+	public Map(String jsonFileLocation, Level level) throws MapFormatException {
+        this(jsonFileLocation, level, new Random().nextLong());
+    }
 
-            String line = buf.readLine();
-            StringBuilder sb = new StringBuilder();
+    /**
+     * Loads the given JSON map, or its compiled version if it has been compiled, see {@link MapCompiler}.
+     * @param jsonFileLocation the location of the map
+     * @param level a reference to the level this map has been loaded for to be passed to the player, or null if there is no level
+     * @param seed the seed used to give each slime its own random seed, the same seed always gives the same slimes
+     * @throws MapFormatException throws this exception if the map is an invalid format
+     */
+	public Map(String jsonFileLocation, Level level, long seed) throws MapFormatException {
+        this.seed = seed;
+        Random seeds = new Random(seed);
 
-            while(line != null){
-                sb.append(line).append("\n");
-                line = buf.readLine();
-            }
+        MapData data;
 
-            jsonTextContent = sb.toString();
+        try {
+            data = MapCompiler.load(jsonFileLocation);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            throw new MapFormatException(jsonFileLocation + " does not exist.");
         } catch (IOException e) {
             e.printStackTrace();
+            throw new MapFormatException(jsonFileLocation + " is not a valid map: " + e.getMessage());
         }
 
-        if (jsonTextContent == null)
-            throw new InvalidArgumentException(new String[]{jsonFileLocation + " does not exist."});
-
-        JSONObject base = new JSONObject(jsonTextContent);
-        width = base.getJSONArray("layers").getJSONObject(0).getInt("width");
-        height = base.getJSONArray("layers").getJSONObject(0).getInt("height");
-
-        JSONArray tilesJSON = base.getJSONArray("tilesets").getJSONObject(0).getJSONArray("tiles");
-        int firstGID = base.getJSONArray("tilesets").getJSONObject(0).getInt("firstgid");
+        if (!data.isComplete())
+            throw new MapFormatException(jsonFileLocation + " is missing its tile layer or tileset.");
 
         //The images used for the tiles in the map.
         HashMap<Integer, Image> tileImages = new HashMap<>();
-        for (int i = 0; i < tilesJSON.length(); i++) {
-            JSONObject entry = tilesJSON.getJSONObject(i);
+        for (java.util.Map.Entry<Integer, String> entry : data.tileImages.entrySet()) {
+            int id = entry.getKey();
+            String location = entry.getValue();
 
-            int id = entry.getInt("id");
-            String location = entry.getString("image");
+            Image image = Assets.getImage("maps/" + location);
 
-            Image image = new ImageIcon("maps/" + location).getImage();
-
-            if (image.getWidth(null) == -1 && image.getHeight(null) == -1)
-                throw new InvalidArgumentException(new String[]{location + " is not a valid image."});
+            //no images are loaded in headless mode, tiles are then only used for collision
+            if (image == null && !Assets.isHeadless())
+                throw new MapFormatException(location + " is not a valid image.");
 
             tileImages.put(id, image);
         }
 
-        JSONArray data = base.getJSONArray("layers").getJSONObject(0).getJSONArray("data");
+        if (data.infinite)
+            loadChunks(data, tileImages);
+        else
+            loadTiles(data, tileImages);
+
+        //load entities
+        for (MapData.MapObject object : data.objects) {
+        	String name = object.name;
+        	int x = object.x;
+			int y = object.y;
+
+			switch (name.toLowerCase()) {
+                case "coin":
+                    sprites.add(new Coin(store, x, y));
+                    break;
+				case "slime":
+					sprites.add(new Slime(store, tiles, x, y, seeds.nextLong()));
+					break;
+                case "signpost":
+                    sprites.add(new Signpost(store, x, y));
+                    break;
+				case "player":
+					player = new Player(store, tiles, level, x , y);
+					break;
+				default:
+					throw new MapFormatException("Unknown object name: " + name);
+			}
+		}
+
+		if (player == null)
+			throw new MapFormatException("You must specify a player object!");
+
+        //sprites can come before or after the player in the map, so they are all given it once it has been loaded
+        for (Sprite sprite : sprites)
+            sprite.setPlayer(player);
+
+        if (streamer != null)
+            streamer.loadAround(player.getX(), player.getY());
+    }
+
+    /**
+     * Creates every tile of a finite map, surrounded by a border of tiles.
+     * @param data the contents of the map
+     * @param tileImages the images used for the tiles, by tile id
+     */
+    private void loadTiles(MapData data, HashMap<Integer, Image> tileImages) {
+        width = data.width;
+        height = data.height;
+        int firstGID = data.firstGID;
+
+        //one extra row/column on each side for the surrounding tiles
+        tiles = new TileGrid(-1, -1, width + 2, height + 2, SIZE, SIZE);
+
         int count = 0;
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
-                int id = data.getInt(count);
+                int id = data.data[count];
 
                 if (id != 0) {
                     Tile tile = new Tile(tileImages.get(id - firstGID), SIZE,SIZE, x, y);
-                    tiles.put(new Pair<>(x,y), tile);
+                    tiles.set(x, y, tile);
                 }
 
                 count++;
@@ -108,50 +175,101 @@ public class Map {
         //surround the map with tiles
         for (int x = 0; x < width; x++) {
             Tile tile = new Tile(tileImages.get(0), SIZE,SIZE, x, -1);
-            tiles.put(new Pair<>(x,-1), tile);
+            tiles.set(x, -1, tile);
 
             tile = new Tile(tileImages.get(0), SIZE,SIZE, x, height);
-            tiles.put(new Pair<>(x,height), tile);
+            tiles.set(x, height, tile);
         }
 
         for (int y = 0; y < height; y++) {
             Tile tile = new Tile(tileImages.get(0), SIZE,SIZE, -1, y);
-            tiles.put(new Pair<>(-1,y), tile);
+            tiles.set(-1, y, tile);
 
             tile = new Tile(tileImages.get(0), SIZE,SIZE, width, y);
-            tiles.put(new Pair<>(width,y), tile);
+            tiles.set(width, y, tile);
         }
 
-        //load entities
-		JSONArray objects = base.getJSONArray("layers").getJSONObject(1).getJSONArray("objects");
-        for (int i = 0; i < objects.length(); i++) {
-        	JSONObject object = objects.getJSONObject(i);
-        	String name = object.getString("name");
-        	int x = object.getInt("x");
-			int y = object.getInt("y");
+        tileLayer = new TileLayer(tiles);
+    }
 
-			switch (name.toLowerCase()) {
-                case "coin":
-                    sprites.add(new Coin(x, y));
-                    break;
-				case "slime":
-					sprites.add(new Slime(tiles.values(), x, y));
-					break;
-                case "signpost":
-                    sprites.add(new Signpost(x, y));
-                    break;
-				case "player":
-					player = new Player(tiles.values(), level, x , y);
-					for (Sprite sprite : sprites)
-						sprite.setPlayer(player);
-					break;
-				default:
-					throw new InvalidArgumentException(new String[]{"Unknown object name: " + name});
-			}
-		}
+    /**
+     * Sets up streaming for an infinite map, no tiles are created until their chunk is loaded by the {@link ChunkStreamer}.<br>
+     * Tiled's chunks are copied into the grids chunks, which may line up differently, so they can be built on their own.
+     * @param data the contents of the map
+     * @param tileImages the images used for the tiles, by tile id
+     */
+    private void loadChunks(MapData data, HashMap<Integer, Image> tileImages) {
+        int chunkSize = TileGrid.CHUNK_SIZE;
+
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (MapData.MapChunk chunk : data.chunks) {
+            left = Math.min(left, chunk.x);
+            top = Math.min(top, chunk.y);
+            right = Math.max(right, chunk.x + chunk.width);
+            bottom = Math.max(bottom, chunk.y + chunk.height);
+        }
 
-		if (player == null)
-			throw new InvalidArgumentException(new String[]{"You must specify a player object!"});
+        //line the grid up with its chunks so each one covers whole tiles
+        minX = Math.floorDiv(left, chunkSize) * chunkSize;
+        minY = Math.floorDiv(top, chunkSize) * chunkSize;
+        width = right - minX;
+        height = bottom - minY;
+
+        tiles = new TileGrid(minX, minY, width, height, SIZE, SIZE, true);
+
+        int chunkColumns = (width + chunkSize - 1) / chunkSize;
+        int chunkRows = (height + chunkSize - 1) / chunkSize;
+        int[][] sources = new int[chunkColumns * chunkRows][];
+
+        for (MapData.MapChunk chunk : data.chunks) {
+            for (int i = 0; i < chunk.width * chunk.height; i++) {
+                int id = chunk.data[i];
+                if (id == 0)
+                    continue;
+
+                int x = chunk.x + i % chunk.width - minX;
+                int y = chunk.y + i / chunk.width - minY;
+                int index = (y / chunkSize) * chunkColumns + x / chunkSize;
+
+                if (sources[index] == null)
+                    sources[index] = new int[chunkSize * chunkSize];
+
+                sources[index][(y % chunkSize) * chunkSize + x % chunkSize] = id;
+            }
+        }
+
+        tileLayer = new TileLayer(tiles);
+        streamer = new ChunkStreamer(tiles, tileLayer, sources, tileImages, data.firstGID, ChunkStreamer.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Loads and unloads the chunks of an infinite map around the camera, this does nothing for finite maps.
+     * @param cam the camera to stream chunks around
+     */
+    public void updateStreaming(Camera cam) {
+        if (streamer != null)
+            streamer.update(cam);
+    }
+
+    /**
+     * Checks if the tiles at a point have been loaded, this is always true inside a finite map.
+     * @param x the world x coordinate
+     * @param y the world y coordinate
+     * @return whether the tiles at the point are loaded
+     */
+    public boolean isLoaded(float x, float y) {
+        return tiles.isLoaded(x, y);
+    }
+
+    /**
+     * Stops streaming chunks, called once the map is no longer being played.
+     */
+    public void unload() {
+        if (streamer != null)
+            streamer.shutdown();
     }
 
     /**
@@ -159,7 +277,39 @@ public class Map {
      * @return the tiles in the map
      */
     public Collection<Tile> getTiles() {
-        return tiles.values();
+        return tiles.getTiles();
+    }
+
+    /**
+     * Gets the grid index of the tiles in the map.
+     * @return the tile grid
+     */
+    public TileGrid getTileGrid() {
+        return tiles;
+    }
+
+    /**
+     * Gets the pre-rendered tile layer used to draw the tiles.
+     * @return the tile layer
+     */
+    public TileLayer getTileLayer() {
+        return tileLayer;
+    }
+
+    /**
+     * Gets the lowest x coordinate in the map in pixels.
+     * @return the maps minimum x in pixels
+     */
+    public int getMinX() {
+        return SIZE * minX;
+    }
+
+    /**
+     * Gets the lowest y coordinate in the map in pixels.
+     * @return the maps minimum y in pixels
+     */
+    public int getMinY() {
+        return SIZE * minY;
     }
 
     /**
@@ -186,6 +336,14 @@ public class Map {
     	return player;
 	}
 
+    /**
+     * Gets the seed the slimes random seeds were made from, see {@link #Map(String, Level, long)}.
+     * @return the maps seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
     /**
      * Gets all sprites in the map.
      * @return the sprites in the map
@@ -193,4 +351,12 @@ public class Map {
     public ArrayList<Sprite> getSprites() {
 	    return sprites;
     }
+
+    /**
+     * Gets the store holding the state of the player and the sprites in the map.
+     * @return the maps sprite store
+     */
+    public SpriteStore getSpriteStore() {
+        return store;
+    }
 }
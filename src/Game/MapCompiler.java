@@ -0,0 +1,261 @@
+package Game;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * This class converts Tiled JSON maps into a compact binary format which can be loaded without any parsing.<br>
+ * A compiled map is stored next to its JSON file with the {@link #EXTENSION} extension and records a hash of the JSON
+ * it was made from, so it is only used while the JSON has not changed since it was compiled. Infinite maps are not
+ * compiled, they are always read from their JSON.<br>
+ * <br>Format (big endian):
+ * <br>int magic, int version, long JSON hash
+ * <br>int width, int height, int first GID
+ * <br>int tile image count, then for each: int id, string image path
+ * <br>byte tile id size (2 or 4), then width * height tile ids
+ * <br>int object count, then for each: string name, int x, int y
+ * <br>Strings are stored as a short byte length followed by UTF-8 bytes.
+ * @author Connor Stewart
+ */
+public class MapCompiler {
+
+	/** The file extension of compiled maps. */
+	public static final String EXTENSION = ".pmap";
+
+	/** Marks the start of a compiled map file ("PMAP"). */
+	private static final int MAGIC = 0x504D4150;
+
+	/** The version of the format, increased whenever the format changes. */
+	private static final int VERSION = 1;
+
+	/**
+	 * Compiles the given JSON maps, or every JSON map in the maps folder if none are given.
+	 * @param args the paths of the maps to compile
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			File[] maps = new File("maps").listFiles((dir, name) -> name.endsWith(".json"));
+			if (maps == null) {
+				System.err.println("No maps folder found.");
+				return;
+			}
+
+			args = new String[maps.length];
+			for (int i = 0; i < maps.length; i++)
+				args[i] = maps[i].getPath();
+		}
+
+		for (String jsonFileLocation : args) {
+			try {
+				compile(jsonFileLocation);
+				System.out.println("Compiled " + jsonFileLocation + " to " + compiledLocation(jsonFileLocation));
+			} catch (IOException e) {
+				System.err.println("Skipped " + jsonFileLocation + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Compiles a JSON map, replacing any existing compiled version.
+	 * @param jsonFileLocation the location of the JSON map
+	 * @throws IOException if the map could not be read or written
+	 */
+	public static void compile(String jsonFileLocation) throws IOException {
+		byte[] json = Files.readAllBytes(Paths.get(jsonFileLocation));
+		MapData map = MapReader.read(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+
+		if (!map.isComplete())
+			throw new IOException(jsonFileLocation + " is missing its tile layer or tileset.");
+
+		if (map.infinite)
+			throw new IOException(jsonFileLocation + " is an infinite map, these are streamed from the JSON and can not be compiled.");
+
+		//tile ids usually fit in a short, only use ints when they don't
+		boolean shortIds = true;
+		for (int i = 0; i < map.width * map.height; i++)
+			if (map.data[i] < 0 || map.data[i] > 0xFFFF)
+				shortIds = false;
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compiledLocation(jsonFileLocation))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(hash(ByteBuffer.wrap(json)));
+
+			out.writeInt(map.width);
+			out.writeInt(map.height);
+			out.writeInt(map.firstGID);
+
+			out.writeInt(map.tileImages.size());
+			for (java.util.Map.Entry<Integer, String> entry : map.tileImages.entrySet()) {
+				out.writeInt(entry.getKey());
+				writeString(out, entry.getValue());
+			}
+
+			out.writeByte(shortIds ? 2 : 4);
+			for (int i = 0; i < map.width * map.height; i++) {
+				if (shortIds)
+					out.writeShort(map.data[i]);
+				else
+					out.writeInt(map.data[i]);
+			}
+
+			out.writeInt(map.objects.size());
+			for (MapData.MapObject object : map.objects) {
+				writeString(out, object.name);
+				out.writeInt(object.x);
+				out.writeInt(object.y);
+			}
+		}
+	}
+
+	/**
+	 * Loads a map, using its compiled version if there is an up to date one and reading the JSON otherwise.
+	 * @param jsonFileLocation the location of the JSON map
+	 * @return the contents of the map
+	 * @throws IOException if the map could not be read
+	 */
+	static MapData load(String jsonFileLocation) throws IOException {
+		Path compiled = Paths.get(compiledLocation(jsonFileLocation));
+
+		try (FileChannel jsonChannel = FileChannel.open(Paths.get(jsonFileLocation), StandardOpenOption.READ)) {
+			MappedByteBuffer json = jsonChannel.map(FileChannel.MapMode.READ_ONLY, 0, jsonChannel.size());
+
+			if (Files.exists(compiled)) {
+				MapData map = readCompiled(compiled, hash(json));
+				if (map != null)
+					return map;
+			}
+
+			json.rewind();
+			return MapReader.read(new InputStreamReader(new ByteBufferInputStream(json), StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Reads a compiled map by memory mapping it.
+	 * @param compiled the location of the compiled map
+	 * @param jsonHash the hash of the JSON map it should have been compiled from
+	 * @return the contents of the map, or null if the compiled map is out of date or from another version
+	 * @throws IOException if the compiled map could not be read
+	 */
+	private static MapData readCompiled(Path compiled, long jsonHash) throws IOException {
+		try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != jsonHash)
+				return null;
+
+			MapData map = new MapData();
+			map.width = in.getInt();
+			map.height = in.getInt();
+			map.firstGID = in.getInt();
+
+			int tileImageCount = in.getInt();
+			for (int i = 0; i < tileImageCount; i++) {
+				int id = in.getInt();
+				map.tileImages.put(id, readString(in));
+			}
+
+			int idSize = in.get();
+			map.data = new int[map.width * map.height];
+			if (idSize == 4) {
+				in.asIntBuffer().get(map.data);
+				in.position(in.position() + map.data.length * 4);
+			} else {
+				for (int i = 0; i < map.data.length; i++)
+					map.data[i] = in.getShort() & 0xFFFF;
+			}
+
+			int objectCount = in.getInt();
+			for (int i = 0; i < objectCount; i++) {
+				String name = readString(in);
+				map.objects.add(new MapData.MapObject(name, in.getInt(), in.getInt()));
+			}
+
+			return map;
+		} catch (RuntimeException e) {
+			//a truncated or corrupt file, fall back to the JSON
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a string as its UTF-8 byte length followed by the bytes.
+	 * @param out the stream to write to
+	 * @param string the string to write
+	 */
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString}.
+	 * @param in the buffer to read from
+	 * @return the string read
+	 */
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getShort() & 0xFFFF];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Hashes the contents of a JSON map.
+	 * @param json the JSON to hash
+	 * @return the hash
+	 */
+	private static long hash(ByteBuffer json) {
+		CRC32 crc = new CRC32();
+		crc.update(json);
+		return crc.getValue();
+	}
+
+	/**
+	 * Gets the location of the compiled version of a JSON map.
+	 * @param jsonFileLocation the location of the JSON map
+	 * @return the location of the compiled map
+	 */
+	static String compiledLocation(String jsonFileLocation) {
+		if (jsonFileLocation.endsWith(".json"))
+			return jsonFileLocation.substring(0, jsonFileLocation.length() - ".json".length()) + EXTENSION;
+
+		return jsonFileLocation + EXTENSION;
+	}
+
+	/**
+	 * An input stream over a byte buffer, used to parse a memory mapped JSON map.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining())
+				return -1;
+
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+			return length;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package Game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The raw contents of a map file, before any tiles or sprites are created from it.
+ * @author Connor Stewart
+ */
+class MapData {
+
+	/** An object placed in the map's object layer. */
+	static class MapObject {
+
+		/** The name of the object, used to decide which sprite to create. */
+		final String name;
+
+		/** The objects x coordinate in pixels. */
+		final int x;
+
+		/** The objects y coordinate in pixels. */
+		final int y;
+
+		MapObject(String name, int x, int y) {
+			this.name = name;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/** A chunk of tiles in the tile layer of an infinite map. */
+	static class MapChunk {
+
+		/** The tile x coordinate of the chunks top left tile. */
+		final int x;
+
+		/** The tile y coordinate of the chunks top left tile. */
+		final int y;
+
+		/** The width of the chunk in tiles. */
+		final int width;
+
+		/** The height of the chunk in tiles. */
+		final int height;
+
+		/** The tile ids in the chunk, row by row. */
+		final int[] data;
+
+		MapChunk(int x, int y, int width, int height, int[] data) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			this.data = data;
+		}
+	}
+
+	/** Whether the map is infinite, if so its tiles are in {@link #chunks} rather than {@link #data}. */
+	boolean infinite;
+
+	/** The width of the tile layer in tiles. */
+	int width = -1;
+
+	/** The height of the tile layer in tiles. */
+	int height = -1;
+
+	/** The tile ids in the tile layer, row by row. */
+	int[] data;
+
+	/** The chunks in the tile layer of an infinite map. */
+	final ArrayList<MapChunk> chunks = new ArrayList<>();
+
+	/** The first tile id used by the tileset. */
+	int firstGID = -1;
+
+	/** The image used by each tile in the tileset, by tile id. */
+	final HashMap<Integer, String> tileImages = new HashMap<>();
+
+	/** The objects in the object layer. */
+	final ArrayList<MapObject> objects = new ArrayList<>();
+
+	/**
+	 * @return whether the data has everything needed to build a map
+	 */
+	boolean isComplete() {
+		if (infinite)
+			return !chunks.isEmpty() && firstGID >= 0;
+
+		return width >= 0 && height >= 0 && data != null && data.length >= width * height && firstGID >= 0;
+	}
+}
@@ -0,0 +1,17 @@
+package Game;
+
+/**
+ * Thrown when a map can not be loaded, because it is missing or is not a valid map.
+ * @author Connor Stewart
+ */
+public class MapFormatException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param message what is wrong with the map
+	 */
+	public MapFormatException(String message) {
+		super(message);
+	}
+}
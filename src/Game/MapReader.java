@@ -0,0 +1,502 @@
+package Game;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * This class reads the parts of a Tiled JSON map that {@link Map} needs, in a single pass over the file.<br>
+ * Rather than building a tree of JSON objects, the tile data is read straight into an int array and everything the
+ * map does not use is skipped over.
+ * @author Connor Stewart
+ */
+class MapReader {
+
+	/** The amount of characters read from the file at a time. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** The file being read. */
+	private final Reader in;
+
+	/** The characters read from the file that have not been parsed yet. */
+	private final char[] buffer = new char[BUFFER_SIZE];
+
+	/** The position of the next character in the buffer. */
+	private int position = 0;
+
+	/** The amount of characters in the buffer. */
+	private int limit = 0;
+
+	/** Reused when reading strings. */
+	private final StringBuilder text = new StringBuilder();
+
+	/** The contents of the map read so far. */
+	private final MapData map = new MapData();
+
+	private MapReader(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Reads a map from the given reader.
+	 * @param in the reader to read the map from, this is not closed
+	 * @return the contents of the map
+	 * @throws IOException if the map could not be read or is not valid JSON
+	 */
+	static MapData read(Reader in) throws IOException {
+		MapReader reader = new MapReader(in);
+		reader.readMap();
+		return reader.map;
+	}
+
+	/**
+	 * Reads the root object of the map.
+	 */
+	private void readMap() throws IOException {
+		expect('{');
+		if (!endOf('}')) {
+			do {
+				String key = readString();
+				expect(':');
+
+				switch (key) {
+					case "infinite":
+						map.infinite = readBoolean();
+						break;
+					case "layers":
+						readLayers();
+						break;
+					case "tilesets":
+						readTilesets();
+						break;
+					default:
+						skipValue();
+						break;
+				}
+			} while (next(',', '}'));
+		}
+	}
+
+	/**
+	 * Reads the layers array, the first layer holds the tiles (or tile chunks for infinite maps) and the second holds the objects.
+	 */
+	private void readLayers() throws IOException {
+		expect('[');
+		if (endOf(']'))
+			return;
+
+		int layer = 0;
+		do {
+			expect('{');
+			if (!endOf('}')) {
+				do {
+					String key = readString();
+					expect(':');
+
+					if (layer == 0 && key.equals("data"))
+						map.data = readIntArray();
+					else if (layer == 0 && key.equals("chunks"))
+						readChunks();
+					else if (layer == 0 && key.equals("width"))
+						map.width = (int) readNumber();
+					else if (layer == 0 && key.equals("height"))
+						map.height = (int) readNumber();
+					else if (layer == 1 && key.equals("objects"))
+						readObjects();
+					else
+						skipValue();
+				} while (next(',', '}'));
+			}
+
+			layer++;
+		} while (next(',', ']'));
+	}
+
+	/**
+	 * Reads the chunks in the tile layer of an infinite map.
+	 */
+	private void readChunks() throws IOException {
+		expect('[');
+		if (endOf(']'))
+			return;
+
+		do {
+			int[] data = null;
+			int x = 0;
+			int y = 0;
+			int width = -1;
+			int height = -1;
+
+			expect('{');
+			if (!endOf('}')) {
+				do {
+					String key = readString();
+					expect(':');
+
+					switch (key) {
+						case "data":
+							data = readIntArray();
+							break;
+						case "x":
+							x = (int) readNumber();
+							break;
+						case "y":
+							y = (int) readNumber();
+							break;
+						case "width":
+							width = (int) readNumber();
+							break;
+						case "height":
+							height = (int) readNumber();
+							break;
+						default:
+							skipValue();
+							break;
+					}
+				} while (next(',', '}'));
+			}
+
+			if (data == null || width < 0 || height < 0 || data.length < width * height)
+				throw new IOException("Chunk at " + x + ", " + y + " is missing its data or size.");
+
+			map.chunks.add(new MapData.MapChunk(x, y, width, height, data));
+		} while (next(',', ']'));
+	}
+
+	/**
+	 * Reads the objects in the object layer.
+	 */
+	private void readObjects() throws IOException {
+		expect('[');
+		if (endOf(']'))
+			return;
+
+		do {
+			String name = null;
+			int x = 0;
+			int y = 0;
+
+			expect('{');
+			if (!endOf('}')) {
+				do {
+					String key = readString();
+					expect(':');
+
+					switch (key) {
+						case "name":
+							name = readString();
+							break;
+						case "x":
+							x = (int) readNumber();
+							break;
+						case "y":
+							y = (int) readNumber();
+							break;
+						default:
+							skipValue();
+							break;
+					}
+				} while (next(',', '}'));
+			}
+
+			if (name == null)
+				throw new IOException("Object without a name.");
+
+			map.objects.add(new MapData.MapObject(name, x, y));
+		} while (next(',', ']'));
+	}
+
+	/**
+	 * Reads the first tileset, any others are skipped.
+	 */
+	private void readTilesets() throws IOException {
+		expect('[');
+		if (endOf(']'))
+			return;
+
+		int tileset = 0;
+		do {
+			if (tileset != 0) {
+				skipValue();
+			} else {
+				expect('{');
+				if (!endOf('}')) {
+					do {
+						String key = readString();
+						expect(':');
+
+						if (key.equals("firstgid"))
+							map.firstGID = (int) readNumber();
+						else if (key.equals("tiles"))
+							readTiles();
+						else
+							skipValue();
+					} while (next(',', '}'));
+				}
+			}
+
+			tileset++;
+		} while (next(',', ']'));
+	}
+
+	/**
+	 * Reads the id and image of each tile in the tileset.
+	 */
+	private void readTiles() throws IOException {
+		expect('[');
+		if (endOf(']'))
+			return;
+
+		do {
+			int id = -1;
+			String image = null;
+
+			expect('{');
+			if (!endOf('}')) {
+				do {
+					String key = readString();
+					expect(':');
+
+					if (key.equals("id"))
+						id = (int) readNumber();
+					else if (key.equals("image"))
+						image = readString();
+					else
+						skipValue();
+				} while (next(',', '}'));
+			}
+
+			if (id < 0 || image == null)
+				throw new IOException("Tileset tile without an id or image.");
+
+			map.tileImages.put(id, image);
+		} while (next(',', ']'));
+	}
+
+	/**
+	 * Reads an array of whole numbers straight into an int array.
+	 * @return the numbers in the array
+	 */
+	private int[] readIntArray() throws IOException {
+		expect('[');
+		int[] values = new int[1024];
+		int count = 0;
+
+		if (!endOf(']')) {
+			do {
+				skipWhitespace();
+				boolean negative = peek() == '-';
+				if (negative)
+					position++;
+
+				long value = 0;
+				int digits = 0;
+				while (fill() && buffer[position] >= '0' && buffer[position] <= '9') {
+					value = value * 10 + (buffer[position++] - '0');
+					digits++;
+				}
+
+				if (digits == 0)
+					throw new IOException("Expected a number in tile data.");
+
+				if (count == values.length)
+					values = Arrays.copyOf(values, count * 2);
+
+				//tile ids are unsigned 32 bit numbers, the top bits are used as flip flags
+				values[count++] = (int) (negative ? -value : value);
+			} while (next(',', ']'));
+		}
+
+		return Arrays.copyOf(values, count);
+	}
+
+	/**
+	 * Reads a number.
+	 * @return the number read
+	 */
+	private double readNumber() throws IOException {
+		skipWhitespace();
+		text.setLength(0);
+
+		while (fill()) {
+			char c = buffer[position];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				text.append(c);
+				position++;
+			} else {
+				break;
+			}
+		}
+
+		try {
+			return Double.parseDouble(text.toString());
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid number: " + text);
+		}
+	}
+
+	/**
+	 * Reads true or false.
+	 * @return the value read
+	 */
+	private boolean readBoolean() throws IOException {
+		skipWhitespace();
+		text.setLength(0);
+
+		while (fill() && Character.isLetter(buffer[position]))
+			text.append(buffer[position++]);
+
+		if (text.toString().equals("true"))
+			return true;
+		if (text.toString().equals("false"))
+			return false;
+
+		throw new IOException("Expected true or false but found '" + text + "'.");
+	}
+
+	/**
+	 * Reads a string, including any escaped characters.
+	 * @return the string read
+	 */
+	private String readString() throws IOException {
+		expect('"');
+		text.setLength(0);
+
+		while (true) {
+			char c = read();
+
+			if (c == '"')
+				return text.toString();
+
+			if (c != '\\') {
+				text.append(c);
+				continue;
+			}
+
+			c = read();
+			switch (c) {
+				case 'b': text.append('\b'); break;
+				case 'f': text.append('\f'); break;
+				case 'n': text.append('\n'); break;
+				case 'r': text.append('\r'); break;
+				case 't': text.append('\t'); break;
+				case 'u':
+					char[] hex = {read(), read(), read(), read()};
+					try {
+						text.append((char) Integer.parseInt(new String(hex), 16));
+					} catch (NumberFormatException e) {
+						throw new IOException("Invalid unicode escape: " + new String(hex));
+					}
+					break;
+				default: text.append(c); break;
+			}
+		}
+	}
+
+	/**
+	 * Skips over any JSON value.
+	 */
+	private void skipValue() throws IOException {
+		skipWhitespace();
+		char c = peek();
+
+		if (c == '"') {
+			readString();
+		} else if (c == '{') {
+			position++;
+			if (!endOf('}')) {
+				do {
+					readString();
+					expect(':');
+					skipValue();
+				} while (next(',', '}'));
+			}
+		} else if (c == '[') {
+			position++;
+			if (!endOf(']')) {
+				do {
+					skipValue();
+				} while (next(',', ']'));
+			}
+		} else if (c == 't' || c == 'f' || c == 'n') {
+			//true, false or null
+			while (fill() && Character.isLetter(buffer[position]))
+				position++;
+		} else {
+			readNumber();
+		}
+	}
+
+	/**
+	 * Reads the separator after a value in an object or array.
+	 * @param separator the character between values
+	 * @param end the character closing the object or array
+	 * @return true if there is another value, false if the end was reached
+	 */
+	private boolean next(char separator, char end) throws IOException {
+		skipWhitespace();
+		char c = read();
+
+		if (c == separator)
+			return true;
+		if (c == end)
+			return false;
+
+		throw new IOException("Expected '" + separator + "' or '" + end + "' but found '" + c + "'.");
+	}
+
+	/**
+	 * Checks if an object or array is empty, consuming the closing character if it is.
+	 * @param end the character closing the object or array
+	 * @return whether the end was reached
+	 */
+	private boolean endOf(char end) throws IOException {
+		skipWhitespace();
+
+		if (peek() == end) {
+			position++;
+			return true;
+		}
+
+		return false;
+	}
+
+	private void expect(char expected) throws IOException {
+		skipWhitespace();
+		char c = read();
+
+		if (c != expected)
+			throw new IOException("Expected '" + expected + "' but found '" + c + "'.");
+	}
+
+	private void skipWhitespace() throws IOException {
+		while (fill() && Character.isWhitespace(buffer[position]))
+			position++;
+	}
+
+	private char peek() throws IOException {
+		if (!fill())
+			throw new IOException("Unexpected end of map.");
+
+		return buffer[position];
+	}
+
+	private char read() throws IOException {
+		char c = peek();
+		position++;
+		return c;
+	}
+
+	/**
+	 * Makes sure there is at least one character in the buffer.
+	 * @return false if the end of the file has been reached
+	 */
+	private boolean fill() throws IOException {
+		if (position < limit)
+			return true;
+
+		limit = in.read(buffer, 0, buffer.length);
+		position = 0;
+		return limit > 0;
+	}
+}
@@ -2,8 +2,6 @@ package Game.Physics;
 
 import Game.Entities.Tile;
 
-import java.util.ArrayList;
-
 /**
  * This class is used to represent a line between two points.
  * @author Connor Stewart
@@ -73,18 +71,56 @@ public class Line {
 	 * @return whether this line intersects the tile
 	 */
 	public boolean intersects(Tile tile) {
-		ArrayList<Line> lines = new ArrayList<>();
-		lines.add(new Line(new Point(tile.getX(), tile.getY()), new Point(tile.getX(), tile.getY() + tile.getHeight()))); //l1
-		lines.add(new Line(new Point(tile.getX(), tile.getY()), new Point(tile.getX() + tile.getWidth(), tile.getY()))); //l2
-		lines.add(new Line(new Point(tile.getX() + tile.getWidth(), tile.getY()), new Point(tile.getX() + tile.getWidth(), tile.getY() + tile.getHeight()))); //l3
-		lines.add(new Line(new Point(tile.getX(),tile.getY() + tile.getHeight()), new Point(tile.getX() + tile.getWidth(), tile.getY() + tile.getHeight()))); //l4
-
-		boolean intersected = false;
-		for (Line line : lines)
-			if (this.intersects(line) != null)
-				intersected = true;
-
-		return intersected;
+		return intersects(p1.x, p1.y, p2.x, p2.y, tile);
+	}
+
+	/**
+	 * Checks if the line between two points intersects any of the four edges of the given tile.<br>
+	 * This works on primitives so that no objects are created while checking.
+	 * @param x1 the x coordinate of the lines first point
+	 * @param y1 the y coordinate of the lines first point
+	 * @param x2 the x coordinate of the lines second point
+	 * @param y2 the y coordinate of the lines second point
+	 * @param tile the tile to check
+	 * @return whether the line intersects the tile
+	 */
+	public static boolean intersects(float x1, float y1, float x2, float y2, Tile tile) {
+		float left = tile.getX();
+		float top = tile.getY();
+		float right = tile.getX() + tile.getWidth();
+		float bottom = tile.getY() + tile.getHeight();
+
+		return intersects(x1, y1, x2, y2, left, top, left, bottom) || //l1
+				intersects(x1, y1, x2, y2, left, top, right, top) || //l2
+				intersects(x1, y1, x2, y2, right, top, right, bottom) || //l3
+				intersects(x1, y1, x2, y2, left, bottom, right, bottom); //l4
+	}
+
+	/**
+	 * Checks if two line segments intersect, using the same maths as {@link #intersects(Line)} without creating any objects.
+	 * @param x1 the x coordinate of the first lines first point
+	 * @param y1 the y coordinate of the first lines first point
+	 * @param x2 the x coordinate of the first lines second point
+	 * @param y2 the y coordinate of the first lines second point
+	 * @param x3 the x coordinate of the second lines first point
+	 * @param y3 the y coordinate of the second lines first point
+	 * @param x4 the x coordinate of the second lines second point
+	 * @param y4 the y coordinate of the second lines second point
+	 * @return whether the line segments intersect
+	 */
+	public static boolean intersects(float x1, float y1, float x2, float y2, float x3, float y3, float x4, float y4) {
+		double r_x = x2 - x1;
+		double r_y = y2 - y1;
+
+		double s_x = x4 - x3;
+		double s_y = y4 - y3;
+
+		double denominator = r_x*s_y - r_y*s_x;
+
+		double u = ((x3 - x1)*r_y - (y3 - y1)*r_x) / denominator;
+		double t = ((x3 - x1)*s_y - (y3 - y1)*s_x) / denominator;
+
+		return t >= 0 && t <= 1 && u >= 0 && u <= 1;
 	}
 
 	/**
@@ -0,0 +1,19 @@
+package Game.Physics;
+
+/**
+ * Something which can answer whether there is line of sight between two world points.
+ * @author Connor Stewart
+ * @see LineOfSightCache
+ */
+public interface LineOfSight {
+
+	/**
+	 * Checks if there is line of sight between two world points.
+	 * @param x1 the x coordinate of the first point
+	 * @param y1 the y coordinate of the first point
+	 * @param x2 the x coordinate of the second point
+	 * @param y2 the y coordinate of the second point
+	 * @return whether no tiles block the line between the points
+	 */
+	boolean canSee(float x1, float y1, float x2, float y2);
+}
@@ -0,0 +1,358 @@
+package Game.Physics;
+
+import java.util.Arrays;
+
+/**
+ * This class caches line of sight checks against a tile grid.<br>
+ * Results are stored by the tile coordinates of both ends of the line, so two lines starting and ending in the same tiles
+ * share a result. The least recently used results are removed once the cache is full, and every result is thrown away
+ * whenever a tile in the grid changes.<br>
+ * Results are kept in fixed size arrays rather than a map, so that checking line of sight never allocates. Each result
+ * is an entry, found through an open addressing table of entry indexes, and the entries are linked from least to most
+ * recently used by their indexes.<br>
+ * The cache is not thread safe. To check line of sight from several threads at once, each thread checks through its own
+ * {@link Batch}, which only reads the cache, then the batches are merged back into it one at a time.
+ * @author Connor Stewart
+ */
+public class LineOfSightCache implements LineOfSight {
+
+	/** The default maximum amount of results to keep. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** The tiles that block line of sight. */
+	private final TileGrid tiles;
+
+	/** Marks an empty slot in {@link #table}, and the end of the recently used links. */
+	private static final int NONE = -1;
+
+	/** The maximum amount of results to keep. */
+	private final int capacity;
+
+	/** The key of each entry. */
+	private final long[] keys;
+
+	/** The result of each entry, true where there is line of sight. */
+	private final boolean[] results;
+
+	/** The index of the next less recently used entry of each entry, or {@link #NONE} for the oldest. */
+	private final int[] older;
+
+	/** The index of the next more recently used entry of each entry, or {@link #NONE} for the newest. */
+	private final int[] newer;
+
+	/**
+	 * The index of the entry for each key, stored in the slot given by the keys hash or the nearest free slot after it.<br>
+	 * There are at least twice as many slots as entries, so a free slot is always found quickly.
+	 */
+	private final int[] table;
+
+	/** The amount of bits in an index of {@link #table}. */
+	private final int tableBits;
+
+	/** The amount of entries in use. */
+	private int size;
+
+	/** The least recently used entry, or {@link #NONE} if there are none. */
+	private int oldest = NONE;
+
+	/** The most recently used entry, or {@link #NONE} if there are none. */
+	private int newest = NONE;
+
+	/** The version of the tile grid the cached results were calculated with. */
+	private int version;
+
+	/** The amount of checks answered from the cache. */
+	private long hits = 0;
+
+	/** The amount of checks that had to be calculated. */
+	private long misses = 0;
+
+	/**
+	 * Creates a cache for the given tiles.
+	 * @param tiles the tiles that block line of sight
+	 * @param capacity the maximum amount of results to keep
+	 */
+	public LineOfSightCache(TileGrid tiles, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be at least 1");
+
+		this.tiles = tiles;
+		this.version = tiles.getVersion();
+		this.capacity = capacity;
+
+		keys = new long[capacity];
+		results = new boolean[capacity];
+		older = new int[capacity];
+		newer = new int[capacity];
+
+		table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+		tableBits = Integer.numberOfTrailingZeros(table.length);
+		Arrays.fill(table, NONE);
+	}
+
+	/**
+	 * Checks if there is line of sight between two world points.
+	 * @param x1 the x coordinate of the first point
+	 * @param y1 the y coordinate of the first point
+	 * @param x2 the x coordinate of the second point
+	 * @param y2 the y coordinate of the second point
+	 * @return whether no tiles block the line between the points
+	 */
+	@Override
+	public boolean canSee(float x1, float y1, float x2, float y2) {
+		checkVersion();
+
+		long key = key(x1, y1, x2, y2);
+		int entry = find(key);
+
+		if (entry != NONE) {
+			hits++;
+			use(entry);
+			return results[entry];
+		}
+
+		misses++;
+		boolean canSee = !tiles.intersects(x1, y1, x2, y2);
+		add(key, canSee);
+		return canSee;
+	}
+
+	/**
+	 * Throws away every result if a tile in the grid has changed since they were calculated.<br>
+	 * This must be called before any batches are used, as batches do not check themselves.
+	 */
+	public void checkVersion() {
+		if (version != tiles.getVersion()) {
+			Arrays.fill(table, NONE);
+			size = 0;
+			oldest = NONE;
+			newest = NONE;
+			version = tiles.getVersion();
+		}
+	}
+
+	/**
+	 * Adds the checks made through a batch to the cache, in the order they were made, then empties the batch.<br>
+	 * A result the cache already has is kept and marked as used, otherwise the batches result is added. Merging batches
+	 * in the same order always leaves the cache in the same state, no matter which threads the batches were used on.
+	 * @param batch the batch to merge
+	 */
+	public void merge(Batch batch) {
+		for (int i = 0; i < batch.size; i++) {
+			long key = batch.keys[i];
+
+			//the entry the batch read is reused unless an earlier merge has since given it to another key
+			int entry = batch.entries[i];
+			if (entry == NONE || entry >= size || keys[entry] != key)
+				entry = find(key);
+
+			if (entry != NONE) {
+				hits++;
+				use(entry);
+			} else {
+				misses++;
+				add(key, batch.results[i]);
+			}
+		}
+
+		batch.size = 0;
+	}
+
+	/**
+	 * Packs the tile coordinates of both points into a single key.
+	 * @param x1 the x coordinate of the first point
+	 * @param y1 the y coordinate of the first point
+	 * @param x2 the x coordinate of the second point
+	 * @param y2 the y coordinate of the second point
+	 * @return the key for the line
+	 */
+	private long key(float x1, float y1, float x2, float y2) {
+		long tileX1 = (int) Math.floor(x1 / tiles.getTileWidth()) & 0xFFFF;
+		long tileY1 = (int) Math.floor(y1 / tiles.getTileHeight()) & 0xFFFF;
+		long tileX2 = (int) Math.floor(x2 / tiles.getTileWidth()) & 0xFFFF;
+		long tileY2 = (int) Math.floor(y2 / tiles.getTileHeight()) & 0xFFFF;
+
+		return (tileX1 << 48) | (tileY1 << 32) | (tileX2 << 16) | tileY2;
+	}
+
+	/**
+	 * Finds the entry for a key.
+	 * @param key the key to find
+	 * @return the index of the entry, or {@link #NONE} if the key is not cached
+	 */
+	private int find(long key) {
+		int mask = table.length - 1;
+
+		for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+			int entry = table[slot];
+			if (entry == NONE || keys[entry] == key)
+				return entry;
+		}
+	}
+
+	/**
+	 * Adds a result that is not already cached, reusing the least recently used entry if the cache is full.
+	 * @param key the key of the result
+	 * @param result the result
+	 */
+	private void add(long key, boolean result) {
+		int entry;
+		if (size == capacity) {
+			entry = oldest;
+			unlink(entry);
+			removeFromTable(keys[entry]);
+		} else {
+			entry = size++;
+		}
+
+		keys[entry] = key;
+		results[entry] = result;
+		linkNewest(entry);
+
+		int mask = table.length - 1;
+		int slot = slot(key);
+		while (table[slot] != NONE)
+			slot = (slot + 1) & mask;
+		table[slot] = entry;
+	}
+
+	/**
+	 * Marks an entry as the most recently used.
+	 * @param entry the index of the entry
+	 */
+	private void use(int entry) {
+		if (entry != newest) {
+			unlink(entry);
+			linkNewest(entry);
+		}
+	}
+
+	private void unlink(int entry) {
+		if (older[entry] != NONE)
+			newer[older[entry]] = newer[entry];
+		else
+			oldest = newer[entry];
+
+		if (newer[entry] != NONE)
+			older[newer[entry]] = older[entry];
+		else
+			newest = older[entry];
+	}
+
+	private void linkNewest(int entry) {
+		older[entry] = newest;
+		newer[entry] = NONE;
+
+		if (newest != NONE)
+			newer[newest] = entry;
+		else
+			oldest = entry;
+
+		newest = entry;
+	}
+
+	/**
+	 * Removes a cached key from the table, moving back any keys after it that could no longer be found.
+	 * @param key the key to remove
+	 */
+	private void removeFromTable(long key) {
+		int mask = table.length - 1;
+
+		int free = slot(key);
+		while (keys[table[free]] != key)
+			free = (free + 1) & mask;
+
+		for (int slot = (free + 1) & mask; table[slot] != NONE; slot = (slot + 1) & mask) {
+			//a key can fill the free slot if the free slot is between its own slot and where it is now
+			int home = slot(keys[table[slot]]);
+			if (((slot - home) & mask) >= ((slot - free) & mask)) {
+				table[free] = table[slot];
+				free = slot;
+			}
+		}
+
+		table[free] = NONE;
+	}
+
+	/**
+	 * @param key a key
+	 * @return the slot in {@link #table} the key is stored in or after
+	 */
+	private int slot(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - tableBits));
+	}
+
+	/**
+	 * @return the amount of checks answered from the cache
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the amount of checks that had to be calculated
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the amount of results currently cached
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks line of sight against a cache without changing it, so many batches can be used at once on different threads
+	 * as long as nothing else uses the cache meanwhile. The results a batch reads are only marked as used once the batch
+	 * is merged.<br>
+	 * A result the cache does not have is calculated, and the checks are kept so that they can be merged into the cache
+	 * afterwards, see {@link LineOfSightCache#merge}. Results calculated by a batch are not reused by it, so a check always
+	 * gives the same result no matter what else was checked through the batch before it.
+	 */
+	public static final class Batch implements LineOfSight {
+
+		/** The cache to read from. */
+		private final LineOfSightCache cache;
+
+		/** The keys of the checks made, in order. */
+		private long[] keys = new long[16];
+
+		/** The results of the checks made, in order. */
+		private boolean[] results = new boolean[16];
+
+		/** The cache entries the checks made were read from in order, or {@link #NONE} where the result was calculated. */
+		private int[] entries = new int[16];
+
+		/** The amount of checks made. */
+		private int size;
+
+		/**
+		 * Creates an empty batch.
+		 * @param cache the cache to read from
+		 */
+		public Batch(LineOfSightCache cache) {
+			this.cache = cache;
+		}
+
+		@Override
+		public boolean canSee(float x1, float y1, float x2, float y2) {
+			long key = cache.key(x1, y1, x2, y2);
+			int entry = cache.find(key);
+			boolean canSee = (entry != NONE) ? cache.results[entry] : !cache.tiles.intersects(x1, y1, x2, y2);
+
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				results = Arrays.copyOf(results, size * 2);
+				entries = Arrays.copyOf(entries, size * 2);
+			}
+
+			keys[size] = key;
+			results[size] = canSee;
+			entries[size] = entry;
+			size++;
+			return canSee;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package Game.Physics;
+
+import Game.Sprite;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * This class finds pairs of sprites whose collision rectangles overlap.<br>
+ * Sprites are kept sorted by their x coordinate, so only sprites which overlap along the x axis are tested against each
+ * other. As sprites move very little between updates the list is nearly sorted each time, making the sort cheap.
+ * @author Connor Stewart
+ */
+public class SweepAndPrune {
+
+	/** Receives each pair of overlapping sprites. */
+	public interface PairListener {
+
+		/**
+		 * Called for each pair of sprites which overlap.
+		 * @param first the sprite further left
+		 * @param second the sprite further right
+		 */
+		void collided(Sprite first, Sprite second);
+	}
+
+	/** The sprites to test, sorted by x coordinate as of the last call to {@link #findPairs}. */
+	private final ArrayList<Sprite> sprites = new ArrayList<>();
+
+	/**
+	 * Adds a sprite to be tested for collisions.
+	 * @param sprite the sprite to add
+	 */
+	public void add(Sprite sprite) {
+		sprites.add(sprite);
+	}
+
+	/**
+	 * Stops testing the given sprites for collisions.
+	 * @param toRemove the sprites to remove
+	 */
+	public void removeAll(Collection<Sprite> toRemove) {
+		sprites.removeAll(toRemove);
+	}
+
+	/**
+	 * Finds every pair of sprites that are colliding.
+	 * @param listener the listener to notify of each pair
+	 */
+	public void findPairs(PairListener listener) {
+		int size = sprites.size();
+
+		//insertion sort by x, the sprites should already be nearly sorted from the last update
+		for (int i = 1; i < size; i++) {
+			Sprite sprite = sprites.get(i);
+			float spriteX = sprite.getX();
+
+			int j = i - 1;
+			while (j >= 0 && sprites.get(j).getX() > spriteX) {
+				sprites.set(j + 1, sprites.get(j));
+				j--;
+			}
+
+			sprites.set(j + 1, sprite);
+		}
+
+		//sweep, stopping once the next sprite starts past the right hand side of the current one
+		for (int i = 0; i < size; i++) {
+			Sprite first = sprites.get(i);
+			float maxX = first.getX() + first.getRectWidth();
+
+			for (int j = i + 1; j < size; j++) {
+				Sprite second = sprites.get(j);
+
+				if (second.getX() >= maxX)
+					break;
+
+				if (first.collides(second))
+					listener.collided(first, second);
+			}
+		}
+	}
+
+	/**
+	 * @return the amount of sprites being tested
+	 */
+	public int size() {
+		return sprites.size();
+	}
+}
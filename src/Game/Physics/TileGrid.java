@@ -0,0 +1,388 @@
+package Game.Physics;
+
+import Game.Entities.Tile;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A dense grid of tiles indexed by their tile coordinates.<br>
+ * This is used so that collision checks only need to look at the cells around a sprite rather than every tile in the map.<br>
+ * The grid is split into square chunks of {@link #CHUNK_SIZE} tiles. A chunk which has not been loaded acts as if it
+ * has no tiles, which lets large maps only keep the chunks around the camera in memory.
+ * @author Connor Stewart
+ */
+public class TileGrid {
+
+	/** The width and height of a chunk in tiles. */
+	public static final int CHUNK_SIZE = 16;
+
+	/** The chunks in the grid stored row by row, null where a chunk is not loaded. Each chunk stores its tiles row by row. */
+	private final Tile[][] chunks;
+
+	/** The amount of chunk columns. */
+	private final int chunkColumns;
+
+	/** The amount of chunk rows. */
+	private final int chunkRows;
+
+	/** The lowest tile x coordinate the grid can hold. */
+	private final int minX;
+
+	/** The lowest tile y coordinate the grid can hold. */
+	private final int minY;
+
+	/** The amount of columns in the grid. */
+	private final int columns;
+
+	/** The amount of rows in the grid. */
+	private final int rows;
+
+	/** The width of a single tile in pixels. */
+	private final int tileWidth;
+
+	/** The height of a single tile in pixels. */
+	private final int tileHeight;
+
+	/** Increased every time a tile is added or removed. */
+	private int version = 0;
+
+	/** Cached line of sight results for this grid. */
+	private final LineOfSightCache lineOfSightCache;
+
+	/**
+	 * Creates an empty grid with every chunk loaded.
+	 * @param minX the lowest tile x coordinate the grid can hold
+	 * @param minY the lowest tile y coordinate the grid can hold
+	 * @param columns the amount of columns in the grid
+	 * @param rows the amount of rows in the grid
+	 * @param tileWidth the width of a tile in pixels
+	 * @param tileHeight the height of a tile in pixels
+	 */
+	public TileGrid(int minX, int minY, int columns, int rows, int tileWidth, int tileHeight) {
+		this(minX, minY, columns, rows, tileWidth, tileHeight, false);
+	}
+
+	/**
+	 * Creates an empty grid.
+	 * @param minX the lowest tile x coordinate the grid can hold
+	 * @param minY the lowest tile y coordinate the grid can hold
+	 * @param columns the amount of columns in the grid
+	 * @param rows the amount of rows in the grid
+	 * @param tileWidth the width of a tile in pixels
+	 * @param tileHeight the height of a tile in pixels
+	 * @param streamed if true no chunks are loaded until {@link #setChunk} is called, otherwise every chunk is loaded
+	 */
+	public TileGrid(int minX, int minY, int columns, int rows, int tileWidth, int tileHeight, boolean streamed) {
+		this.minX = minX;
+		this.minY = minY;
+		this.columns = columns;
+		this.rows = rows;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+
+		chunkColumns = (columns + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		chunkRows = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		chunks = new Tile[chunkColumns * chunkRows][];
+
+		if (!streamed)
+			for (int i = 0; i < chunks.length; i++)
+				chunks[i] = new Tile[CHUNK_SIZE * CHUNK_SIZE];
+
+		lineOfSightCache = new LineOfSightCache(this, LineOfSightCache.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Places a tile in the grid, loading its chunk if it is not already loaded.
+	 * @param x the tile x coordinate
+	 * @param y the tile y coordinate
+	 * @param tile the tile to place
+	 */
+	public void set(int x, int y, Tile tile) {
+		if (!inBounds(x, y))
+			throw new IndexOutOfBoundsException("Tile " + x + ", " + y + " is outside of the grid.");
+
+		int chunk = chunkIndex(x, y);
+		if (chunks[chunk] == null)
+			chunks[chunk] = new Tile[CHUNK_SIZE * CHUNK_SIZE];
+
+		chunks[chunk][cellIndex(x, y)] = tile;
+		version++;
+	}
+
+	/**
+	 * Gets the tile at the given tile coordinates.
+	 * @param x the tile x coordinate
+	 * @param y the tile y coordinate
+	 * @return the tile or null if there is no tile there or its chunk is not loaded
+	 */
+	public Tile get(int x, int y) {
+		if (!inBounds(x, y))
+			return null;
+
+		Tile[] chunk = chunks[chunkIndex(x, y)];
+		return (chunk == null) ? null : chunk[cellIndex(x, y)];
+	}
+
+	/**
+	 * Loads a whole chunk of tiles at once.
+	 * @param x the tile x coordinate of the chunks top left tile, this must line up with the grids chunks
+	 * @param y the tile y coordinate of the chunks top left tile, this must line up with the grids chunks
+	 * @param cells the tiles in the chunk row by row, {@link #CHUNK_SIZE} * {@link #CHUNK_SIZE} long
+	 */
+	public void setChunk(int x, int y, Tile[] cells) {
+		if (!inBounds(x, y))
+			throw new IndexOutOfBoundsException("Chunk " + x + ", " + y + " is outside of the grid.");
+
+		if ((x - minX) % CHUNK_SIZE != 0 || (y - minY) % CHUNK_SIZE != 0)
+			throw new IllegalArgumentException("Chunk " + x + ", " + y + " does not line up with the grid.");
+
+		if (cells.length != CHUNK_SIZE * CHUNK_SIZE)
+			throw new IllegalArgumentException("A chunk must have " + (CHUNK_SIZE * CHUNK_SIZE) + " cells.");
+
+		chunks[chunkIndex(x, y)] = cells;
+		version++;
+	}
+
+	/**
+	 * Unloads the chunk containing the given tile.
+	 * @param x a tile x coordinate in the chunk
+	 * @param y a tile y coordinate in the chunk
+	 */
+	public void removeChunk(int x, int y) {
+		if (!inBounds(x, y))
+			return;
+
+		chunks[chunkIndex(x, y)] = null;
+		version++;
+	}
+
+	/**
+	 * Checks if the chunk containing a world point is loaded.
+	 * @param x the points x coordinate
+	 * @param y the points y coordinate
+	 * @return whether the chunk is loaded, false if the point is outside of the grid
+	 */
+	public boolean isLoaded(float x, float y) {
+		int tileX = (int) Math.floor(x / tileWidth);
+		int tileY = (int) Math.floor(y / tileHeight);
+
+		return inBounds(tileX, tileY) && chunks[chunkIndex(tileX, tileY)] != null;
+	}
+
+	/**
+	 * Finds a tile which overlaps the given world rectangle.
+	 * @param x the rectangles x coordinate
+	 * @param y the rectangles y coordinate
+	 * @param width the rectangles width
+	 * @param height the rectangles height
+	 * @return a tile that overlaps the rectangle or null if none do
+	 */
+	public Tile getOverlapping(float x, float y, float width, float height) {
+		int startX = (int) Math.floor(x / tileWidth);
+		int startY = (int) Math.floor(y / tileHeight);
+		int endX = (int) Math.ceil((x + width) / tileWidth) - 1;
+		int endY = (int) Math.ceil((y + height) / tileHeight) - 1;
+
+		for (int tileY = startY; tileY <= endY; tileY++) {
+			for (int tileX = startX; tileX <= endX; tileX++) {
+				Tile tile = get(tileX, tileY);
+
+				if (tile != null &&
+						tile.getX() < x + width &&
+						tile.getX() + tile.getWidth() > x &&
+						tile.getY() < y + height &&
+						tile.getHeight() + tile.getY() > y) {
+					return tile;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Adds every tile in the cells covered by the given world rectangle to a collection.
+	 * @param x the rectangles x coordinate
+	 * @param y the rectangles y coordinate
+	 * @param width the rectangles width
+	 * @param height the rectangles height
+	 * @param into the collection to add the tiles to
+	 */
+	public void collectTiles(float x, float y, float width, float height, Collection<Tile> into) {
+		int startX = Math.max(minX, (int) Math.floor(x / tileWidth));
+		int startY = Math.max(minY, (int) Math.floor(y / tileHeight));
+		int endX = Math.min(minX + columns - 1, (int) Math.ceil((x + width) / tileWidth) - 1);
+		int endY = Math.min(minY + rows - 1, (int) Math.ceil((y + height) / tileHeight) - 1);
+
+		for (int tileY = startY; tileY <= endY; tileY++) {
+			for (int tileX = startX; tileX <= endX; tileX++) {
+				Tile tile = get(tileX, tileY);
+
+				if (tile != null)
+					into.add(tile);
+			}
+		}
+	}
+
+	/**
+	 * Finds the tile which strictly contains the given world point.
+	 * @param x the points x coordinate
+	 * @param y the points y coordinate
+	 * @return the tile containing the point or null if there isn't one
+	 */
+	public Tile getAt(float x, float y) {
+		Tile tile = get((int) Math.floor(x / tileWidth), (int) Math.floor(y / tileHeight));
+
+		if (tile != null &&
+				x > tile.getX() && x < tile.getX() + tile.getWidth() &&
+				y > tile.getY() && y < tile.getY() + tile.getHeight()) {
+			return tile;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Checks if a line between two world points intersects any tile in the grid.<br>
+	 * Rather than testing every tile, this walks the cells the line passes through (Amanatides & Woo) and stops at the first
+	 * tile hit. The tiles around each cell are tested too so that lines which only touch a tiles edge or corner give the
+	 * same result as testing the line against every tile.
+	 * @param x1 the x coordinate of the first point
+	 * @param y1 the y coordinate of the first point
+	 * @param x2 the x coordinate of the second point
+	 * @param y2 the y coordinate of the second point
+	 * @return whether any tile intersects the line
+	 */
+	public boolean intersects(float x1, float y1, float x2, float y2) {
+		int cellX = (int) Math.floor(x1 / tileWidth);
+		int cellY = (int) Math.floor(y1 / tileHeight);
+		int endX = (int) Math.floor(x2 / tileWidth);
+		int endY = (int) Math.floor(y2 / tileHeight);
+
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		int stepX = (int) Math.signum(dx);
+		int stepY = (int) Math.signum(dy);
+
+		//the distance along the line (0 to 1) to cross a whole cell, and to reach the next cell boundary
+		double tDeltaX = (stepX != 0) ? tileWidth / Math.abs((double) dx) : Double.POSITIVE_INFINITY;
+		double tDeltaY = (stepY != 0) ? tileHeight / Math.abs((double) dy) : Double.POSITIVE_INFINITY;
+		double tMaxX = (stepX != 0) ? ((cellX + (stepX > 0 ? 1 : 0)) * (double) tileWidth - x1) / dx : Double.POSITIVE_INFINITY;
+		double tMaxY = (stepY != 0) ? ((cellY + (stepY > 0 ? 1 : 0)) * (double) tileHeight - y1) / dy : Double.POSITIVE_INFINITY;
+
+		int steps = Math.abs(endX - cellX) + Math.abs(endY - cellY);
+		for (int i = 0; i <= steps; i++) {
+			if (intersectsAround(cellX, cellY, x1, y1, x2, y2))
+				return true;
+
+			//step along whichever axis has the closest boundary, never stepping past the end cell
+			if (cellY == endY || (cellX != endX && tMaxX < tMaxY)) {
+				tMaxX += tDeltaX;
+				cellX += stepX;
+			} else {
+				tMaxY += tDeltaY;
+				cellY += stepY;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks if a line intersects the tile in the given cell or any of the cells surrounding it.
+	 * @param cellX the cells x coordinate
+	 * @param cellY the cells y coordinate
+	 * @param x1 the x coordinate of the first point
+	 * @param y1 the y coordinate of the first point
+	 * @param x2 the x coordinate of the second point
+	 * @param y2 the y coordinate of the second point
+	 * @return whether any of the tiles intersect the line
+	 */
+	private boolean intersectsAround(int cellX, int cellY, float x1, float y1, float x2, float y2) {
+		for (int tileY = cellY - 1; tileY <= cellY + 1; tileY++) {
+			for (int tileX = cellX - 1; tileX <= cellX + 1; tileX++) {
+				Tile tile = get(tileX, tileY);
+
+				if (tile != null && Line.intersects(x1, y1, x2, y2, tile))
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets every tile in the loaded chunks of the grid.
+	 * @return the tiles in the grid
+	 */
+	public Collection<Tile> getTiles() {
+		ArrayList<Tile> tiles = new ArrayList<>();
+
+		for (Tile[] chunk : chunks)
+			if (chunk != null)
+				for (Tile tile : chunk)
+					if (tile != null)
+						tiles.add(tile);
+
+		return tiles;
+	}
+
+	/**
+	 * Gets the version of the grid, this changes whenever a tile is added or removed.
+	 * @return the version of the grid
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the cache of line of sight checks for this grid.
+	 * @return the line of sight cache
+	 */
+	public LineOfSightCache getLineOfSightCache() {
+		return lineOfSightCache;
+	}
+
+	/**
+	 * @return the lowest tile x coordinate the grid can hold
+	 */
+	public int getMinX() {
+		return minX;
+	}
+
+	/**
+	 * @return the lowest tile y coordinate the grid can hold
+	 */
+	public int getMinY() {
+		return minY;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getTileWidth() {
+		return tileWidth;
+	}
+
+	public int getTileHeight() {
+		return tileHeight;
+	}
+
+	private boolean inBounds(int x, int y) {
+		return x >= minX && x < minX + columns && y >= minY && y < minY + rows;
+	}
+
+	private int chunkIndex(int x, int y) {
+		return ((y - minY) / CHUNK_SIZE) * chunkColumns + (x - minX) / CHUNK_SIZE;
+	}
+
+	private int cellIndex(int x, int y) {
+		return ((y - minY) % CHUNK_SIZE) * CHUNK_SIZE + (x - minX) % CHUNK_SIZE;
+	}
+}
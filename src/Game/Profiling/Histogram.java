@@ -0,0 +1,120 @@
+package Game.Profiling;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of durations in nanoseconds, with a fixed set of buckets so recording never allocates.<br>
+ * Like an HDR histogram, buckets are exact for small values and then double in width with each power of two, so every
+ * value is kept to within 1/{@link #SUB_BUCKETS_HALF} of itself no matter how large it is. Values above
+ * {@link #MAX_VALUE} are counted as {@link #MAX_VALUE}.<br>
+ * A histogram is not thread safe, it must only be used by one thread at a time.
+ * @author Connor Stewart
+ */
+public final class Histogram {
+
+	/** The amount of bits of precision kept for every value. */
+	private static final int SUB_BUCKET_BITS = 7;
+
+	/** The amount of buckets holding the exact values below the first doubling. */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** The amount of buckets between each power of two after the first. */
+	private static final int SUB_BUCKETS_HALF = SUB_BUCKETS / 2;
+
+	/** The largest value that can be recorded, a little over 18 minutes in nanos. */
+	public static final long MAX_VALUE = (1L << 40) - 1;
+
+	/** The count of values in each bucket. */
+	private final long[] counts = new long[bucketIndex(MAX_VALUE) + 1];
+
+	/** The amount of values recorded. */
+	private long totalCount;
+
+	/** The largest value recorded. */
+	private long max;
+
+	/**
+	 * Records a value.
+	 * @param value the value to record, negative values are counted as 0
+	 */
+	public void record(long value) {
+		value = Math.max(0, Math.min(value, MAX_VALUE));
+		counts[bucketIndex(value)]++;
+		totalCount++;
+
+		if (value > max)
+			max = value;
+	}
+
+	/**
+	 * Gets the value that a percentage of the recorded values are at or below.
+	 * @param percentile the percentage, between 0 and 100
+	 * @return the largest value that falls in the same bucket as the percentile, or 0 if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0)
+			return 0;
+
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target)
+				return Math.min(highestValueIn(i), max);
+		}
+
+		return max;
+	}
+
+	/**
+	 * @return the largest value recorded, 0 if nothing has been recorded
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * @return the amount of values recorded
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Forgets every recorded value.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+		max = 0;
+	}
+
+	/**
+	 * Finds the bucket a value is counted in.
+	 * @param value the value, between 0 and {@link #MAX_VALUE}
+	 * @return the index of the bucket
+	 */
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+
+		//shift the value so only its top bits are left, each shift starts another set of half as many buckets
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+		return SUB_BUCKETS + (shift - 1) * SUB_BUCKETS_HALF + (int) ((value >> shift) - SUB_BUCKETS_HALF);
+	}
+
+	/**
+	 * Finds the largest value counted in a bucket.
+	 * @param index the index of the bucket
+	 * @return the largest value in the bucket
+	 */
+	private static long highestValueIn(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+
+		int shift = (index - SUB_BUCKETS) / SUB_BUCKETS_HALF + 1;
+		long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS_HALF + SUB_BUCKETS_HALF;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,451 @@
+package Game.Profiling;
+
+import javax.management.*;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class times each phase of a levels frames and updates, to find what is causing slow or uneven frames.<br>
+ * Every phase has its own {@link Histogram}, and once a second its median, 99th percentile and maximum are published
+ * and the histogram is started again. The published values can be drawn over the game with {@link #drawOverlay}, along
+ * with a graph of the last few seconds of frame times, and read over JMX for dashboards once {@link #register}ed.
+ * The amount of sprites awake and asleep are shown and published the same way.<br>
+ * Each phase must only be recorded by one thread, but the published values can be read from any thread.
+ * @author Connor Stewart
+ */
+public class Profiler implements DynamicMBean {
+
+	/** The phases which are timed. */
+	public enum Phase {
+		/** The time between the start of one frame and the next. */
+		FRAME,
+		/** Applying the queued key events to an update. */
+		INPUT,
+		/** Updating the game. */
+		UPDATE,
+		/** Clearing the cameras buffer and drawing the background, once the camera has moved for the frame. */
+		FLUSH,
+		/** Drawing the tiles. */
+		TILES,
+		/** Drawing the sprites and text. */
+		SPRITES,
+		/** Drawing the cameras buffer to the window and showing it. */
+		PRESENT
+	}
+
+	/** How often the percentiles of each phase are published, in nanos. */
+	private static final long INTERVAL = 1_000_000_000L;
+
+	/** The amount of frames shown in the frame time graph. */
+	private static final int GRAPH_LENGTH = 180;
+
+	/** The frame time shown at the top of the graph, in nanos. */
+	private static final long GRAPH_MAX = 50_000_000L;
+
+	/** The frame time a line is drawn at on the graph, in nanos, the time of a frame at 60 frames per second. */
+	private static final long GRAPH_TARGET = 16_666_667L;
+
+	/** The colour drawn behind the overlay. */
+	private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 160);
+
+	/** The font the overlay is drawn in, monospaced so its columns line up. */
+	private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+	/** The timings of each phase, by ordinal. */
+	private final PhaseTimings[] timings = new PhaseTimings[Phase.values().length];
+
+	/** The last {@link #GRAPH_LENGTH} frame times, only used by the thread recording frames. */
+	private final long[] frameTimes = new long[GRAPH_LENGTH];
+
+	/** The position in {@link #frameTimes} of the next frame time. */
+	private int framePosition;
+
+	/** The lines of text drawn by the overlay, rebuilt whenever new values are published. */
+	private final String[] overlayLines = new String[Phase.values().length + 2];
+
+	/** The total amount of times values had been published when the overlay text was last built. */
+	private long overlayVersion = -1;
+
+	/** The amount of sprites awake in the latest update. */
+	private volatile int activeSprites;
+
+	/** The amount of sprites asleep in the latest update. */
+	private volatile int sleepingSprites;
+
+	/** The sprite counts when the overlay text was last built. */
+	private int overlayActive = -1, overlaySleeping = -1;
+
+	/** Whether the overlay is drawn. */
+	private volatile boolean overlayVisible;
+
+	/** The attributes available over JMX, by name. */
+	private final HashMap<String, PublishedValue> attributes = new HashMap<>();
+
+	/** Describes the attributes available over JMX. */
+	private final MBeanInfo info;
+
+	/** The name this profiler is registered with JMX under, null if it is not registered. */
+	private ObjectName registeredName;
+
+	public Profiler() {
+		for (Phase phase : Phase.values())
+			timings[phase.ordinal()] = new PhaseTimings();
+
+		MBeanAttributeInfo[] attributeInfo = new MBeanAttributeInfo[Phase.values().length * Statistic.values().length + 2];
+		int count = 0;
+		for (Phase phase : Phase.values()) {
+			for (Statistic statistic : Statistic.values()) {
+				String name = phaseName(phase) + statistic.suffix;
+				attributes.put(name, new PublishedValue(phase, statistic));
+				attributeInfo[count++] = new MBeanAttributeInfo(name, statistic.type, statistic.description + " " + phaseName(phase)
+						+ " in the last second", true, false, false);
+			}
+		}
+
+		attributeInfo[count++] = new MBeanAttributeInfo("ActiveSprites", "int", "The amount of sprites awake in the latest update",
+				true, false, false);
+		attributeInfo[count] = new MBeanAttributeInfo("SleepingSprites", "int", "The amount of sprites asleep in the latest update",
+				true, false, false);
+
+		info = new MBeanInfo(getClass().getName(), "Frame and update timings of a level", attributeInfo, null, null, null);
+	}
+
+	/**
+	 * Records how long a phase took, from a given start time until now.
+	 * @param phase the phase
+	 * @param start the {@link System#nanoTime()} the phase started
+	 * @return the current {@link System#nanoTime()}, which can be used as the start of the next phase
+	 */
+	public long mark(Phase phase, long start) {
+		long now = System.nanoTime();
+		record(phase, now - start, now);
+		return now;
+	}
+
+	/**
+	 * Records how long a phase took.
+	 * @param phase the phase
+	 * @param nanos how long it took in nanos
+	 * @param now the current {@link System#nanoTime()}
+	 */
+	public void record(Phase phase, long nanos, long now) {
+		timings[phase.ordinal()].record(nanos, now);
+
+		if (phase == Phase.FRAME) {
+			frameTimes[framePosition] = nanos;
+			framePosition = (framePosition + 1) % GRAPH_LENGTH;
+		}
+	}
+
+	/**
+	 * Records how many sprites are awake and asleep, see {@link Game.Simulation#getActiveCount()}.
+	 * @param active the amount of sprites awake
+	 * @param sleeping the amount of sprites asleep
+	 */
+	public void setSpriteCounts(int active, int sleeping) {
+		activeSprites = active;
+		sleepingSprites = sleeping;
+	}
+
+	/**
+	 * Forgets every timing, used when a level starts again.
+	 */
+	public void reset() {
+		for (PhaseTimings phase : timings)
+			phase.reset();
+
+		Arrays.fill(frameTimes, 0);
+		framePosition = 0;
+	}
+
+	/**
+	 * Draws a graph of the recent frame times and the published timings of each phase. This must be called from the
+	 * thread recording frames.
+	 * @param g the graphics to draw with
+	 * @param x the x coordinate of the top left of the overlay
+	 * @param y the y coordinate of the top left of the overlay
+	 */
+	public void drawOverlay(Graphics2D g, int x, int y) {
+		Font font = g.getFont();
+		g.setFont(OVERLAY_FONT);
+
+		int graphHeight = 60;
+		int lineHeight = g.getFontMetrics().getHeight();
+		int height = graphHeight + lineHeight * overlayLines.length + 10;
+		int width = Math.max(GRAPH_LENGTH, 260) + 10;
+
+		g.setColor(OVERLAY_BACKGROUND);
+		g.fillRect(x, y, width, height);
+
+		//oldest frame on the left, red when slower than the target frame time
+		int graphBottom = y + 5 + graphHeight;
+		for (int i = 0; i < GRAPH_LENGTH; i++) {
+			long frameTime = frameTimes[(framePosition + i) % GRAPH_LENGTH];
+			int barHeight = (int) (Math.min(frameTime, GRAPH_MAX) * graphHeight / GRAPH_MAX);
+
+			g.setColor(frameTime > GRAPH_TARGET * 1.1 ? Color.RED : Color.GREEN);
+			g.drawLine(x + 5 + i, graphBottom, x + 5 + i, graphBottom - barHeight);
+		}
+
+		int targetY = graphBottom - (int) (GRAPH_TARGET * graphHeight / GRAPH_MAX);
+		g.setColor(Color.YELLOW);
+		g.drawLine(x + 5, targetY, x + 5 + GRAPH_LENGTH, targetY);
+
+		updateOverlayLines();
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < overlayLines.length; i++)
+			g.drawString(overlayLines[i], x + 5, graphBottom + lineHeight * (i + 1));
+
+		g.setFont(font);
+	}
+
+	/**
+	 * Rebuilds the overlay text if new timings have been published since it was last built.
+	 */
+	private void updateOverlayLines() {
+		long version = 0;
+		for (PhaseTimings phase : timings)
+			version += phase.version;
+
+		int active = activeSprites;
+		int sleeping = sleepingSprites;
+		if (version == overlayVersion && active == overlayActive && sleeping == overlaySleeping)
+			return;
+
+		overlayVersion = version;
+		overlayActive = active;
+		overlaySleeping = sleeping;
+		overlayLines[0] = String.format("%-8s %7s %7s %7s", "ms", "p50", "p99", "max");
+		for (Phase phase : Phase.values()) {
+			PhaseTimings timing = timings[phase.ordinal()];
+			overlayLines[phase.ordinal() + 1] = String.format("%-8s %7.2f %7.2f %7.2f", phaseName(phase),
+					timing.p50 / 1e6, timing.p99 / 1e6, timing.max / 1e6);
+		}
+
+		overlayLines[overlayLines.length - 1] = String.format("sprites  %d awake %d asleep", active, sleeping);
+	}
+
+	/**
+	 * Shows or hides the overlay.
+	 */
+	public void toggleOverlay() {
+		overlayVisible = !overlayVisible;
+	}
+
+	/**
+	 * @return whether the overlay is drawn
+	 */
+	public boolean isOverlayVisible() {
+		return overlayVisible;
+	}
+
+	/**
+	 * Makes the published timings available over JMX, replacing any profiler already registered under the same name.
+	 * @param name the name of the level being profiled
+	 */
+	public void register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("Game:type=Profiler,name=" + ObjectName.quote(name));
+
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+
+			server.registerMBean(this, objectName);
+			registeredName = objectName;
+		} catch (JMException e) {
+			System.err.println("Failed to register the profiler for " + name);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Removes this profiler from JMX, if it was registered.
+	 */
+	public void unregister() {
+		if (registeredName == null)
+			return;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+		} catch (JMException e) {
+			//it has already been removed
+		}
+
+		registeredName = null;
+	}
+
+	/**
+	 * @param phase the phase
+	 * @return the median time of the phase in the last second, in nanos
+	 */
+	public long getP50(Phase phase) {
+		return timings[phase.ordinal()].p50;
+	}
+
+	/**
+	 * @param phase the phase
+	 * @return the 99th percentile time of the phase in the last second, in nanos
+	 */
+	public long getP99(Phase phase) {
+		return timings[phase.ordinal()].p99;
+	}
+
+	/**
+	 * @param phase the phase
+	 * @return the longest time of the phase in the last second, in nanos
+	 */
+	public long getMax(Phase phase) {
+		return timings[phase.ordinal()].max;
+	}
+
+	@Override
+	public Object getAttribute(String name) throws AttributeNotFoundException {
+		if (name.equals("ActiveSprites"))
+			return activeSprites;
+		if (name.equals("SleepingSprites"))
+			return sleepingSprites;
+
+		PublishedValue value = attributes.get(name);
+		if (value == null)
+			throw new AttributeNotFoundException(name);
+
+		PhaseTimings timing = timings[value.phase.ordinal()];
+		switch (value.statistic) {
+			case P50:
+				return timing.p50 / 1e6;
+			case P99:
+				return timing.p99 / 1e6;
+			case MAX:
+				return timing.max / 1e6;
+			default:
+				return timing.count;
+		}
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] names) {
+		AttributeList list = new AttributeList();
+		for (String name : names) {
+			try {
+				list.add(new Attribute(name, getAttribute(name)));
+			} catch (AttributeNotFoundException e) {
+				//unknown attributes are left out
+			}
+		}
+
+		return list;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException(attribute.getName() + " is read only.");
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+		throw new MBeanException(new UnsupportedOperationException(actionName));
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		return info;
+	}
+
+	/**
+	 * @param phase the phase
+	 * @return the name of the phase as shown in the overlay and over JMX
+	 */
+	private static String phaseName(Phase phase) {
+		return phase.name().charAt(0) + phase.name().substring(1).toLowerCase();
+	}
+
+	/** The values published for each phase. */
+	private enum Statistic {
+		P50("P50Millis", "double", "The median time of"),
+		P99("P99Millis", "double", "The 99th percentile time of"),
+		MAX("MaxMillis", "double", "The longest time of"),
+		COUNT("Count", "long", "The amount of times of");
+
+		/** Added to the phase name to name the attribute. */
+		final String suffix;
+
+		/** The type of the attribute. */
+		final String type;
+
+		/** The start of the description of the attribute. */
+		final String description;
+
+		Statistic(String suffix, String type, String description) {
+			this.suffix = suffix;
+			this.type = type;
+			this.description = description;
+		}
+	}
+
+	/** A published value of a phase. */
+	private static class PublishedValue {
+
+		final Phase phase;
+		final Statistic statistic;
+
+		PublishedValue(Phase phase, Statistic statistic) {
+			this.phase = phase;
+			this.statistic = statistic;
+		}
+	}
+
+	/**
+	 * The timings of a single phase, recorded by one thread.
+	 */
+	private static class PhaseTimings {
+
+		/** The times recorded since the values were last published. */
+		private final Histogram histogram = new Histogram();
+
+		/** The {@link System#nanoTime()} the values were last published. */
+		private long intervalStart = System.nanoTime();
+
+		/** The published median, in nanos. */
+		volatile long p50;
+
+		/** The published 99th percentile, in nanos. */
+		volatile long p99;
+
+		/** The published maximum, in nanos. */
+		volatile long max;
+
+		/** The amount of times the published values were taken from. */
+		volatile long count;
+
+		/** The amount of times values have been published. */
+		volatile long version;
+
+		void record(long nanos, long now) {
+			histogram.record(nanos);
+
+			if (now - intervalStart >= INTERVAL) {
+				p50 = histogram.getValueAtPercentile(50);
+				p99 = histogram.getValueAtPercentile(99);
+				max = histogram.getMax();
+				count = histogram.getTotalCount();
+				version++;
+
+				histogram.reset();
+				intervalStart = now;
+			}
+		}
+
+		void reset() {
+			histogram.reset();
+			intervalStart = System.nanoTime();
+		}
+	}
+}
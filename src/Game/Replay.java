@@ -0,0 +1,89 @@
+package Game;
+
+import Game.Input.InputRecording;
+import Game.Input.KeyStates;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replays recordings made with {@link Game.UI.Level#setRecordingFile} in headless mode, as fast as possible.<br>
+ * The map is loaded with the recorded seed and every recorded tick is fed back through the same fixed time step, then
+ * the players final position, coins and life are checked against the recording. Finite maps replay exactly, infinite
+ * maps are not streamed while replaying so only replay exactly while the player stays near where they started.
+ * @author Connor Stewart
+ */
+public class Replay {
+
+	/**
+	 * Replays the given recordings, exiting with 1 if any did not match.
+	 * @param args the paths of the recordings to replay
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: Replay <recording>...");
+			System.exit(2);
+		}
+
+		System.setProperty("java.awt.headless", "true");
+		Assets.setHeadless(true);
+
+		boolean allMatched = true;
+		for (String file : args) {
+			try {
+				InputRecording recording = InputRecording.read(new File(file));
+
+				long start = System.nanoTime();
+				Simulation simulation = replay(recording);
+				long time = System.nanoTime() - start;
+
+				boolean matched = recording.matches(simulation.getPlayer());
+				allMatched &= matched;
+
+				System.out.printf("%s: %d ticks in %.1fms (%.0f ticks/s), %s%n", file, simulation.getTicks(), time / 1e6,
+						simulation.getTicks() / (time / 1e9), matched ? "matched" : "DID NOT MATCH");
+
+				if (!matched) {
+					Game.Entities.Player player = simulation.getPlayer();
+					System.out.println("  recorded: " + recording.describeFinalState());
+					System.out.println("  replayed: x " + player.getX() + ", y " + player.getY() + ", coins " + player.getCoins() + ", life " + player.getLife());
+				}
+			} catch (IOException | MapFormatException e) {
+				System.err.println("Failed to replay " + file);
+				e.printStackTrace();
+				allMatched = false;
+			}
+		}
+
+		System.exit(allMatched ? 0 : 1);
+	}
+
+	/**
+	 * Loads the recorded map and runs every recorded tick, from the start of the recording.
+	 * @param recording the recording to replay
+	 * @return the simulation after the last tick
+	 * @throws MapFormatException if the recorded map could not be loaded
+	 */
+	public static Simulation replay(InputRecording recording) throws MapFormatException {
+		Map map = new Map(recording.getMapLocation(), null, recording.getSeed());
+
+		final long step = 1_000_000_000L / recording.getUpdateRate();
+		final float dt = 1000f / recording.getUpdateRate();
+
+		Simulation simulation = new Simulation(map, 0);
+		simulation.setActiveRadius(recording.getActiveRadius());
+		KeyStates keys = simulation.getKeys();
+
+		//the recording may have been replayed before
+		recording.rewind();
+
+		long time = 0;
+		while (recording.playTick(keys)) {
+			time += step;
+			simulation.update(dt, time, null);
+		}
+
+		map.unload();
+		return simulation;
+	}
+}
@@ -0,0 +1,233 @@
+package Game;
+
+import Game.Entities.Player;
+import Game.Input.KeyStates;
+import Game.Physics.SweepAndPrune;
+
+import java.util.ArrayList;
+
+/**
+ * The game logic of a level, kept apart from its window so it can also be run without one, see {@link Replay}.<br>
+ * Every update moves the sprites by the same fixed time step and publishes a {@link Snapshot} of them to draw.<br>
+ * Sprites far from the player sleep, they are not moved or animated until the player comes back within the active
+ * radius, which can be set with the game.activeRadius system property. Sprites which stay within the radius move
+ * exactly as they would if nothing slept.
+ * @author Connor Stewart
+ */
+public class Simulation {
+
+	/** The default distance from the player in pixels beyond which sprites sleep, a little under two screens wide. */
+	public static final int DEFAULT_ACTIVE_RADIUS = 1000;
+
+	/** The map containing tiles and sprites. */
+	private final Map tileMap;
+
+	/** The player controlled by the user. */
+	private final Player player;
+
+	/** The store holding the state of the maps sprites. */
+	private final SpriteStore store;
+
+	/** Moves the sprites in parallel. */
+	private final SpriteUpdater updater;
+
+	/** The keys held down during the current update. */
+	private final KeyStates keys = new KeyStates();
+
+	/** A list of sprites that have been marked for removal. */
+	private final ArrayList<Sprite> removalQueue = new ArrayList<>();
+
+	/** Finds sprites that are colliding with each other. */
+	private final SweepAndPrune broadPhase = new SweepAndPrune();
+
+	/** The fraction of a millisecond the animations are behind the updates. */
+	private float animationTime;
+
+	/** The total milliseconds the animations have been advanced by, used to catch sleeping sprites up when they wake. */
+	private long animationClock;
+
+	/** Sprites further than this many pixels from the player sleep, 0 to never put sprites to sleep. */
+	private int activeRadius = Integer.getInteger("game.activeRadius", DEFAULT_ACTIVE_RADIUS);
+
+	/** The amount of sprites that were awake in the latest update. */
+	private volatile int activeCount;
+
+	/** The amount of sprites that were asleep in the latest update. */
+	private volatile int sleepingCount;
+
+	/** The amount of updates so far. */
+	private long ticks;
+
+	/** The snapshot taken after the latest update. */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Creates a simulation of a freshly loaded map.
+	 * @param tileMap the map to simulate
+	 * @param time the {@link System#nanoTime()} the simulation starts at
+	 */
+	public Simulation(Map tileMap, long time) {
+		this.tileMap = tileMap;
+		player = tileMap.getPlayer();
+		store = tileMap.getSpriteStore();
+		updater = new SpriteUpdater(tileMap);
+
+		broadPhase.add(player);
+		for (Sprite sprite : tileMap.getSprites())
+			broadPhase.add(sprite);
+
+		snapshot = Snapshot.of(null, tileMap.getSprites(), player, time);
+	}
+
+	/**
+	 * Updates the games sprites and publishes a snapshot of them to draw.<br>
+	 * The input for the update must be applied to {@link #getKeys()} before this is called.
+	 * @param elapsedTime the fixed time step of an update in milliseconds
+	 * @param time the {@link System#nanoTime()} the update was due
+	 * @param cam the camera to stream chunks around, or null to not stream any
+	 */
+	public void update(float elapsedTime, long time, Camera cam) {
+		player.update(elapsedTime, keys);
+
+		for (Sprite removed : removalQueue)
+			store.setAwake(removed.getSlot(), false);
+		tileMap.getSprites().removeAll(removalQueue);
+		broadPhase.removeAll(removalQueue);
+		removalQueue.clear();
+
+		if (cam != null)
+			tileMap.updateStreaming(cam);
+
+		updateActivity();
+
+		//the work every sprite shares is done for all of them at once, then each moves in its own way, in parallel
+		store.applyGravity();
+		store.applyFriction();
+		updater.move(tileMap.getSprites(), elapsedTime);
+
+		broadPhase.findPairs(this::spritesCollided);
+
+		//animations are drawn from the snapshot, so they move on with the updates, keeping the leftover fraction of a milli
+		animationTime += elapsedTime;
+		long animationMillis = (long) animationTime;
+		animationTime -= animationMillis;
+
+		//the player is updated on its own, so it is never awake in the store
+		player.updateAnim(animationMillis);
+		store.updateAnimations(animationMillis);
+		animationClock += animationMillis;
+
+		keys.nextUpdate();
+		ticks++;
+		snapshot = Snapshot.of(snapshot, tileMap.getSprites(), player, time);
+	}
+
+	/**
+	 * Wakes the sprites near the player and puts the rest to sleep.<br>
+	 * Sprites also sleep while the ground under them has not been streamed in, so they wait in place for it.
+	 */
+	private void updateActivity() {
+		float playerX = player.getX();
+		float playerY = player.getY();
+		float radiusSquared = (float) activeRadius * activeRadius;
+		int active = 0;
+
+		for (Sprite sprite : tileMap.getSprites()) {
+			float x = sprite.getX();
+			float y = sprite.getY();
+			float dx = x - playerX;
+			float dy = y - playerY;
+
+			boolean awake = tileMap.isLoaded(x, y) && (activeRadius <= 0 || dx * dx + dy * dy <= radiusSquared);
+			int slot = sprite.getSlot();
+
+			if (awake != store.isAwake(slot)) {
+				if (awake)
+					store.wake(slot, animationClock);
+				else
+					store.sleep(slot, animationClock);
+			}
+
+			if (awake)
+				active++;
+		}
+
+		activeCount = active;
+		sleepingCount = tileMap.getSprites().size() - active;
+	}
+
+	/**
+	 * Handles a pair of colliding sprites found by the broad phase.
+	 * @param first the first sprite
+	 * @param second the second sprite
+	 */
+	private void spritesCollided(Sprite first, Sprite second) {
+		if (first == player) {
+			if (player.collided(second))
+				removalQueue.add(second);
+		} else if (second == player) {
+			if (player.collided(first))
+				removalQueue.add(first);
+		} else {
+			first.spriteCollided(second);
+			second.spriteCollided(first);
+		}
+	}
+
+	/**
+	 * @return the keys held down during the next update
+	 */
+	public KeyStates getKeys() {
+		return keys;
+	}
+
+	/**
+	 * @return the snapshot taken after the latest update
+	 */
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return the player being simulated
+	 */
+	public Player getPlayer() {
+		return player;
+	}
+
+	/**
+	 * @return the amount of updates so far
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return the distance from the player in pixels beyond which sprites sleep, 0 if they never do
+	 */
+	public int getActiveRadius() {
+		return activeRadius;
+	}
+
+	/**
+	 * Sets how far sprites can be from the player before they sleep.
+	 * @param activeRadius the distance in pixels, 0 to never put sprites to sleep
+	 */
+	public void setActiveRadius(int activeRadius) {
+		this.activeRadius = activeRadius;
+	}
+
+	/**
+	 * @return the amount of sprites that were awake in the latest update
+	 */
+	public int getActiveCount() {
+		return activeCount;
+	}
+
+	/**
+	 * @return the amount of sprites that were asleep in the latest update
+	 */
+	public int getSleepingCount() {
+		return sleepingCount;
+	}
+}
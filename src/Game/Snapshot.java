@@ -0,0 +1,220 @@
+package Game;
+
+import Game.Entities.Player;
+
+import java.awt.*;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * An immutable copy of everything needed to draw a level after one update.<br>
+ * Along with each sprites position after the update, its position from the snapshot before is kept, so a frame can be
+ * drawn anywhere between the last two updates without touching the sprites themselves. This lets the level be drawn on
+ * a different thread to the one updating it.
+ * @author Connor Stewart
+ */
+public final class Snapshot {
+
+	/** The {@link System#nanoTime()} the update this snapshot was taken after was due. */
+	private final long time;
+
+	/** The amount of sprites in the snapshot. */
+	private final int count;
+
+	/** The sprites the snapshot was taken from, only used to find their positions when taking the next snapshot. */
+	private final Sprite[] sources;
+
+	/** Each sprites x coordinate in the snapshot before this one. */
+	private final float[] lastX;
+
+	/** Each sprites y coordinate in the snapshot before this one. */
+	private final float[] lastY;
+
+	/** Each sprites x coordinate. */
+	private final float[] x;
+
+	/** Each sprites y coordinate. */
+	private final float[] y;
+
+	/** Each sprites current animation frame. */
+	private final Image[] images;
+
+	/** The width of each sprites frame. */
+	private final int[] widths;
+
+	/** The height of each sprites frame. */
+	private final int[] heights;
+
+	/** The x offset each sprites frame is drawn at. */
+	private final int[] xOffSets;
+
+	/** The y offset each sprites frame is drawn at. */
+	private final int[] yOffSets;
+
+	/** The width of each sprites collision rectangle. */
+	private final float[] rectWidths;
+
+	/** The height of each sprites collision rectangle. */
+	private final float[] rectHeights;
+
+
+	/** The index of the player in the snapshot. */
+	private final int playerIndex;
+
+	/** The players life points. */
+	private final int life;
+
+	/** The amount of coins the player has collected. */
+	private final int coins;
+
+	/**
+	 * Takes a snapshot of the sprites in a level, the player is drawn after the other sprites.
+	 * @param previous the snapshot taken after the last update, or null if this is the first
+	 * @param sprites the sprites in the level
+	 * @param player the player
+	 * @param time the {@link System#nanoTime()} the update was due
+	 * @return the snapshot
+	 */
+	public static Snapshot of(Snapshot previous, List<Sprite> sprites, Player player, long time) {
+		return new Snapshot(previous, sprites, player, time);
+	}
+
+	private Snapshot(Snapshot previous, List<Sprite> sprites, Player player, long time) {
+		this.time = time;
+
+		count = sprites.size() + 1;
+		sources = new Sprite[count];
+		lastX = new float[count];
+		lastY = new float[count];
+		x = new float[count];
+		y = new float[count];
+		images = new Image[count];
+		widths = new int[count];
+		heights = new int[count];
+		xOffSets = new int[count];
+		yOffSets = new int[count];
+		rectWidths = new float[count];
+		rectHeights = new float[count];
+
+		for (int i = 0; i < sprites.size(); i++)
+			record(i, sprites.get(i));
+
+		playerIndex = count - 1;
+		record(playerIndex, player);
+		life = player.getLife();
+		coins = player.getCoins();
+
+		//sprites are only ever removed, so they are usually at the same index as last time
+		IdentityHashMap<Sprite, Integer> previousIndices = null;
+		for (int i = 0; i < count; i++) {
+			int index = -1;
+
+			if (previous != null) {
+				if (i < previous.count && previous.sources[i] == sources[i]) {
+					index = i;
+				} else {
+					if (previousIndices == null) {
+						previousIndices = new IdentityHashMap<>();
+						for (int j = 0; j < previous.count; j++)
+							previousIndices.put(previous.sources[j], j);
+					}
+
+					Integer found = previousIndices.get(sources[i]);
+					if (found != null)
+						index = found;
+				}
+			}
+
+			//a sprite that was not in the last snapshot starts where it is
+			lastX[i] = (index >= 0) ? previous.x[index] : x[i];
+			lastY[i] = (index >= 0) ? previous.y[index] : y[i];
+		}
+	}
+
+	/**
+	 * Copies the state of a sprite into the snapshot.
+	 * @param i the index to copy it to
+	 * @param sprite the sprite
+	 */
+	private void record(int i, Sprite sprite) {
+		sources[i] = sprite;
+		x[i] = sprite.getX();
+		y[i] = sprite.getY();
+		images[i] = sprite.getDrawImage();
+		widths[i] = sprite.getImageWidth();
+		heights[i] = sprite.getImageHeight();
+		xOffSets[i] = sprite.getXOffSet();
+		yOffSets[i] = sprite.getYOffSet();
+		rectWidths[i] = sprite.getRectWidth();
+		rectHeights[i] = sprite.getRectHeight();
+	}
+
+	/**
+	 * Draws the sprites between the last snapshot and this one.
+	 * @param cam the camera to draw the sprites relative to
+	 * @param alpha the amount (between 0 and 1) to interpolate between the positions
+	 * @param drawCollisionRectangles whether to draw the sprites collision rectangles
+	 */
+	public void draw(Camera cam, float alpha, boolean drawCollisionRectangles) {
+		Graphics2D g = cam.getGraphics();
+
+		for (int i = 0; i < count; i++) {
+			float spriteX = cam.interpolate(lastX[i], x[i], alpha);
+			float spriteY = cam.interpolate(lastY[i], y[i], alpha);
+
+			//skip drawing sprites outside of the camera
+			if (images[i] == null || !cam.isVisible(spriteX + xOffSets[i], spriteY + yOffSets[i], widths[i], heights[i]))
+				continue;
+
+			int drawX = (int) cam.toCameraX(spriteX);
+			int drawY = (int) cam.toCameraY(spriteY);
+
+			//flipped sprites give their pre-rendered mirror image, so every image is drawn unscaled
+			g.drawImage(images[i], drawX + xOffSets[i], drawY + yOffSets[i], null);
+
+			if (drawCollisionRectangles) {
+				g.setColor(Color.RED);
+				g.drawRect(drawX, drawY, (int) rectWidths[i], (int) rectHeights[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} the update this snapshot was taken after was due
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Gets the players x coordinate between the last snapshot and this one.
+	 * @param alpha the amount (between 0 and 1) to interpolate between the positions
+	 * @return the players x coordinate
+	 */
+	public float getPlayerX(float alpha) {
+		return lastX[playerIndex] + (x[playerIndex] - lastX[playerIndex]) * alpha;
+	}
+
+	/**
+	 * Gets the players y coordinate between the last snapshot and this one.
+	 * @param alpha the amount (between 0 and 1) to interpolate between the positions
+	 * @return the players y coordinate
+	 */
+	public float getPlayerY(float alpha) {
+		return lastY[playerIndex] + (y[playerIndex] - lastY[playerIndex]) * alpha;
+	}
+
+	/**
+	 * @return the players life points
+	 */
+	public int getLife() {
+		return life;
+	}
+
+	/**
+	 * @return the amount of coins the player had collected
+	 */
+	public int getCoins() {
+		return coins;
+	}
+}
@@ -1,6 +1,11 @@
 package Game.Sound;
 
+import Game.Assets;
+
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.sound.sampled.*;
 
 /**
@@ -15,21 +20,31 @@ public class Sound {
 	/** The loaded sound clip. */
 	private Clip soundClip;
 
+	/** The contents of each sound file read so far, shared so each file is only read from disk once. */
+	private static final ConcurrentHashMap<String, byte[]> files = new ConcurrentHashMap<>();
+
+	/** Whether sounds are loaded, turned off when sounds are not wanted at all such as while benchmarking. */
+	private static volatile boolean enabled = true;
+
 	/** The available filters for sound files. */
 	public enum Filter {IncreaseOverTime, None}
 
 	/**
-	 * Preloads the sound from the given location and applies a filter.
+	 * Preloads the sound from the given location and applies a filter.<br>
+	 * Nothing is loaded in headless mode or while sounds are disabled, the sound is silent.
 	 * @param fileLocation the location of the sound file
 	 * @param filter the filter to apply to the sound file
 	 */
 	public Sound(String fileLocation, Filter filter) {
 		this.fileLocation = fileLocation;
+
+		if (Assets.isHeadless() || !enabled)
+			return;
+
 		try {
 			switch (filter) {
 				case IncreaseOverTime:
-					File file = new File(fileLocation);
-					AudioInputStream stream = AudioSystem.getAudioInputStream(file);
+					AudioInputStream stream = openStream();
 					AudioFormat format = stream.getFormat();
 					IncreaseOverTimeFilter filtered = new IncreaseOverTimeFilter(stream);
 					AudioInputStream f = new AudioInputStream(filtered,format,stream.getFrameLength());
@@ -45,17 +60,30 @@ public class Sound {
 					loadSound();
 					break;
 			}
-		} catch (LineUnavailableException | IOException | UnsupportedAudioFileException e) {
+		} catch (LineUnavailableException | IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+			//there may be no audio device at all, the sound is then left silent
 			System.err.println("Failed to load sound: " + fileLocation);
 			e.printStackTrace();
+			soundClip = null;
 		}
 	}
 
+	/**
+	 * Sets whether sounds created from now on are loaded.
+	 * @param enabled false to leave new sounds silent
+	 */
+	public static void setEnabled(boolean enabled) {
+		Sound.enabled = enabled;
+	}
+
     /**
      * Sets the volume of the sound clip.
      * @param change the change in decibels
      */
 	public void adjustVolume(float change) {
+		if (soundClip == null)
+			return;
+
         FloatControl gainControl = (FloatControl) soundClip.getControl(FloatControl.Type.MASTER_GAIN);
         gainControl.setValue(change);
     }
@@ -67,17 +95,36 @@ public class Sound {
 	 * @throws UnsupportedAudioFileException error loading sound
 	 */
 	private void loadSound() throws LineUnavailableException, IOException, UnsupportedAudioFileException {
-		File file = new File(fileLocation);
-		AudioInputStream stream = AudioSystem.getAudioInputStream(file);
+		AudioInputStream stream = openStream();
 
 		soundClip = AudioSystem.getClip();
 		soundClip.open(stream);
 	}
 
 	/**
-	 * Plays the sound on a new thread.
+	 * Opens the sound file from memory, reading it from disk if it has not been read before.
+	 * @return a stream of the sound
+	 * @throws IOException error reading the sound file
+	 * @throws UnsupportedAudioFileException the sound file is not a supported format
+	 */
+	private AudioInputStream openStream() throws IOException, UnsupportedAudioFileException {
+		byte[] bytes = files.get(fileLocation);
+
+		if (bytes == null) {
+			bytes = Files.readAllBytes(Paths.get(fileLocation));
+			files.putIfAbsent(fileLocation, bytes);
+		}
+
+		return AudioSystem.getAudioInputStream(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Plays the sound on a new thread, does nothing if the sound could not be loaded.
 	 */
 	public void play() {
+		if (soundClip == null)
+			return;
+
 		soundClip.setFramePosition(0);
 		soundClip.setMicrosecondPosition(0);
 
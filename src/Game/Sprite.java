@@ -1,60 +1,36 @@
 package Game;
 
 import Game.Physics.Line;
+import Game.Physics.LineOfSight;
 import Game.Entities.Player;
 import Game.Entities.Tile;
-import Game.Physics.Point;
+import Game.Physics.TileGrid;
 
 import java.awt.*;
-import java.util.Collection;
 
 /**
- * This is the base class for all sprites in the game.
+ * This is the base class for all sprites in the game.<br>
+ * A sprites state is not kept in the sprite itself but in its slot in a {@link SpriteStore}, shared with the other
+ * sprites in its map. The sprite is a view of that slot, which adds the behaviour that is different for each kind of sprite.
  * @author Connor Stewart
  * @author David Cairns
  */
 public class Sprite {
 
 	/** The tiles this sprite must interact with. */
-    protected final Collection<Tile> tiles;
+    protected final TileGrid tiles;
+
+	/** The store holding this sprites state. */
+	protected final SpriteStore store;
+
+	/** The index of this sprites slot in the store. */
+	protected final int slot;
 
     /** The sprites animation. */
     private Animation anim;
 
 	/** The increase in dy per update. */
-	protected static final float GRAVITY_INCREASE = 0.5f;
-
-	/** The maximum value of dy. */
-	private static final float GRAVITY_MAX = 9.8f;
-
-	//collision mask properties
-
-	/** This sprites collision rectangles x coordinate. */
-	protected float x;
-
-	/** This sprites collision rectangles y coordinate. */
-	protected float y;
-
-	/** The x offset of the collision rectangle. */
-	protected final int xOffSet;
-
-	/** The y offset of the collision rectangle. */
-	protected final int yOffSet;
-
-	/** The width of the rectangle. */
-	protected final float rectWidth;
-
-	/** The height of the rectangle. */
-	protected final float rectHeight;
-
-	/** The x coordinate of the sprite last update. */
-	protected float lastX = 0;
-
-	/** The y coordinate of the sprite last update. */
-	protected float lastY = 0;
-
-	/** Whether to draw the sprite flipped. */
-	protected boolean drawFlipped = false;
+	protected static final float GRAVITY_INCREASE = SpriteStore.GRAVITY_INCREASE;
 
 	/**
 	 * The player controlled by the user.<br>
@@ -62,42 +38,55 @@ public class Sprite {
 	 */
 	protected Player player;
 
-    // Velocity (pixels per millisecond)
-    protected float dx;
-    protected float dy;
-
-    // Dimensions of the sprite
-    protected float height;
-    protected float width;
-
-	public Sprite(Collection<Tile> tiles, int x, int y, int yOffSet, int xOffSet, float rectWidth, float rectHeight) {
-    	this.yOffSet = yOffSet;
-    	this.xOffSet = xOffSet;
-    	this.rectWidth = rectWidth;
-    	this.rectHeight = rectHeight;
+	/**
+	 * Creates a sprite in a new slot of a store.
+	 * @param store the store to keep the sprites state in
+	 * @param tiles the tiles the sprite must interact with, null if it does not move
+	 * @param x the x coordinate of the collision rectangle
+	 * @param y the y coordinate of the collision rectangle
+	 * @param yOffSet the y offset the sprites image is drawn at from the collision rectangle
+	 * @param xOffSet the x offset the sprites image is drawn at from the collision rectangle
+	 * @param rectWidth the width of the collision rectangle
+	 * @param rectHeight the height of the collision rectangle
+	 */
+	public Sprite(SpriteStore store, TileGrid tiles, int x, int y, int yOffSet, int xOffSet, float rectWidth, float rectHeight) {
+        this.store = store;
         this.tiles = tiles;
-        this.anim = new Animation(false);
+        this.slot = store.add(x, y, xOffSet, yOffSet, rectWidth, rectHeight);
 
-        this.x = x;
-        this.y = y;
+        this.anim = new Animation(false);
+        anim.attach(store, slot);
     }
 
     protected void setAnimation(Animation a) {
+		if (a == anim)
+			return;
+
+		anim.detach();
+		a.attach(store, slot);
     	anim = a;
     }
 
 	/**
-	 * Applies gravity to the sprite.
-	 * @param elapsedTime the time elapsed since the last draw
+	 * Applies gravity to the sprite.<br>
+	 * The {@link Simulation} does this for every sprite at once through the store, so subclasses should put what they
+	 * do each update in {@link #move} rather than overriding this.
+	 * @param elapsedTime the time elapsed since the last update
 	 */
 	public void update(float elapsedTime) {
-        width = anim.getImage().getWidth(null);
-        height = anim.getImage().getHeight(null);
-
-		if (dy < GRAVITY_MAX)
-			dy = (dy + GRAVITY_INCREASE > GRAVITY_MAX) ? GRAVITY_MAX : (dy += GRAVITY_INCREASE);
+		store.applyGravity(slot);
     }
 
+	/**
+	 * Does the part of an update which is different for each kind of sprite, after gravity and friction have been
+	 * applied. Does nothing by default.<br>
+	 * Sprites are moved in parallel, see {@link SpriteUpdater}, so this must only change this sprites own state. The
+	 * player and tiles may be read but not changed, and line of sight must be checked through the given checker.
+	 * @param elapsedTime the time elapsed since the last update
+	 * @param sight what to check line of sight with
+	 */
+	public void move(float elapsedTime, LineOfSight sight) {}
+
 	/**
 	 * Moves the sprite and its collision rectangle.
 	 * @param xChange the change in x
@@ -111,6 +100,11 @@ public class Sprite {
 		float newRectX = 0;
 		float newRectY = 0;
 
+		float x = getX();
+		float y = getY();
+		float rectWidth = getRectWidth();
+		float rectHeight = getRectHeight();
+
 		collidedTile = colliding(xChange, 0);
 		//if moving the x axis caused a collision
 		if (collidedTile != null) {
@@ -137,18 +131,18 @@ public class Sprite {
 				newRectY = tileY - rectHeight;
 			} else if (y > tileY) { //bottom collision
 				newRectY = tileY + tileHeight;
-				dy = 0;
+				setDy(0);
 			}
 		} else {
 			newRectY = y + yChange;
 		}
 
 		if (newRectX != 0) {
-			x = newRectX;
+			setX(newRectX);
 		}
 
 		if (newRectY != 0) {
-			y = newRectY;
+			setY(newRectY);
 		}
 	}
 
@@ -159,57 +153,72 @@ public class Sprite {
 	 * @return a tile that was collided with or null if no collision was found
 	 */
 	protected Tile colliding(float xChange, float yChange) {
-		float textX = x + xChange;
-		float testY = y + yChange;
-
-		for (Tile tile : tiles) {
-			if (tile.getX() < textX + rectWidth &&
-					tile.getX() + tile.getWidth() > textX &&
-					tile.getY() < testY + rectHeight &&
-					tile.getHeight() + tile.getY() > testY) {
-				return tile;
-			}
-		}
-		return null;
+		float textX = getX() + xChange;
+		float testY = getY() + yChange;
+
+		//only the cells under the moved rectangle need checking
+		return tiles.getOverlapping(textX, testY, getRectWidth(), getRectHeight());
 	}
 
 	/**
 	 * Debug method to draw this methods vision line.
 	 * @param other the sprite to check for vision of
-	 * @param cam the camera to draw to
+	 * @param sight what to check line of sight with
+	 * @param cam the camera to draw to, or null to not draw the line
 	 * @return whether this sprite has line of sight of the other sprite
 	 */
-	protected boolean canSee(Sprite other, Camera cam) {
-		Line visionLine = new Line(getCollisionRectCenter(), other.getCollisionRectCenter());
-
-		boolean canSee = true;
+	private boolean canSee(Sprite other, LineOfSight sight, Camera cam) {
+		float fromX = getCollisionRectCenterX();
+		float fromY = getCollisionRectCenterY();
+		float toX = other.getCollisionRectCenterX();
+		float toY = other.getCollisionRectCenterY();
 
-		for(Tile tile : tiles) {
-			if (visionLine.intersects(tile)) {
-				canSee = false;
-				break;
-			}
-		}
+		boolean canSee = sight.canSee(fromX, fromY, toX, toY);
 
 		if (cam != null) {
-			cam.pushDrawLine(visionLine, Color.RED);
+			cam.pushDrawLine(new Line(fromX, fromY, toX, toY), Color.RED);
 		}
 
 		return canSee;
 	}
 
-	private Point getCollisionRectCenter() {
-		return new Point(x + rectWidth / 2, y + rectHeight / 2);
+	private float getCollisionRectCenterX() {
+		return getX() + getRectWidth() / 2;
+	}
+
+	private float getCollisionRectCenterY() {
+		return getY() + getRectHeight() / 2;
 	}
 
 	/**
 	 * Checks if this sprite can see another.<br>
-	 * This uses lines in the tiles and a line between both sprites to see if they are in line of sight.
+	 * This uses lines in the tiles and a line between both sprites to see if they are in line of sight.<br>
+	 * Results are cached by the tiles both sprites are in, see {@link Game.Physics.LineOfSightCache}.
 	 * @param other the other sprite
 	 * @return whether this sprite has line of sight of the other sprite
 	 */
 	protected boolean canSee(Sprite other) {
-		return canSee(other, null);
+		return canSee(other, tiles.getLineOfSightCache(), null);
+	}
+
+	/**
+	 * Debug method to draw this methods vision line.
+	 * @param other the sprite to check for vision of
+	 * @param cam the camera to draw to
+	 * @return whether this sprite has line of sight of the other sprite
+	 */
+	protected boolean canSee(Sprite other, Camera cam) {
+		return canSee(other, tiles.getLineOfSightCache(), cam);
+	}
+
+	/**
+	 * Checks if this sprite can see another, through the given line of sight checker rather than the cache of its tiles.
+	 * @param other the other sprite
+	 * @param sight what to check line of sight with, see {@link Game.Physics.LineOfSightCache.Batch}
+	 * @return whether this sprite has line of sight of the other sprite
+	 */
+	protected boolean canSee(Sprite other, LineOfSight sight) {
+		return canSee(other, sight, null);
 	}
 
 	/**
@@ -226,63 +235,132 @@ public class Sprite {
 	 * @return whether the two sprites are colliding
 	 */
 	public boolean collides(Sprite other) {
-		return (other.x < x + rectWidth &&
-				other.x + other.rectWidth > x &&
-				other.y < y + rectHeight &&
-				other.rectHeight + other.y > y);
+		float x = getX();
+		float y = getY();
+		float otherX = other.getX();
+		float otherY = other.getY();
+
+		return (otherX < x + getRectWidth() &&
+				otherX + other.getRectWidth() > x &&
+				otherY < y + getRectHeight() &&
+				other.getRectHeight() + otherY > y);
 	}
 
 	/**
-	 * Draws this sprite.
-	 * @param cam the camera to draw the sprite relative to
-	 * @param alpha the amount (between 0 and 1) to interpolate between the positions.
-	 * @param drawCollisionRectangles whether to draw this sprites collision rectangles
+	 * Called when this sprite collides with another sprite which is not the player.<br>
+	 * Does nothing by default, sprites which need to react to each other should override this.
+	 * @param other the sprite collided with
 	 */
-	public void draw(Camera cam, float alpha, boolean drawCollisionRectangles) {
-		Image image = getImage();
-		Graphics2D g = cam.getGraphics();
-
-		int drawWidth = Math.round(image.getWidth(null));
-		int drawHeight = Math.round(image.getHeight(null));
-
-		Point interpolatedPoint = cam.interpolatePosition(new Game.Physics.Point(lastX, lastY), new Point(x, y), alpha);
-		Point cameraPoint = cam.toCameraCoordinates(interpolatedPoint);
-
-		saveY();
-		saveX();
-
-		int drawY = (int) cameraPoint.y;
-		int drawX = (int) cameraPoint.x;
-
-		if (drawFlipped)
-			g.drawImage(image, drawX + drawWidth + xOffSet, drawY + yOffSet, -drawWidth, drawHeight, null);
-		else
-			g.drawImage(image, drawX + xOffSet, drawY + yOffSet, drawWidth, drawHeight, null);
-
-		if (drawCollisionRectangles) {
-			g.setColor(Color.RED);
-			Point rectPoint = new Point(x, y);
-			Point camRectPoint = cam.toCameraCoordinates(rectPoint);
-			g.drawRect((int)camRectPoint.x, (int)camRectPoint.y, (int)rectWidth, (int)rectHeight);
-		}
-	}
+	public void spriteCollided(Sprite other) {}
 
     public float getX() {
-        return x;
+        return store.x[slot];
     }
 
     public float getY() {
-        return y;
+        return store.y[slot];
     }
 
+	/**
+	 * @return the width of this sprites collision rectangle
+	 */
+	public float getRectWidth() {
+		return store.rectWidth[slot];
+	}
+
+	/**
+	 * @return the height of this sprites collision rectangle
+	 */
+	public float getRectHeight() {
+		return store.rectHeight[slot];
+	}
+
     public void setX(float x) {
-        this.x = x;
+        store.x[slot] = x;
     }
 
     public void setY(float y) {
-        this.y = y;
+        store.y[slot] = y;
     }
 
+	/**
+	 * @return this sprites change in x per update
+	 */
+	protected float getDx() {
+		return store.dx[slot];
+	}
+
+	/**
+	 * @param dx this sprites new change in x per update
+	 */
+	protected void setDx(float dx) {
+		store.dx[slot] = dx;
+	}
+
+	/**
+	 * @return this sprites change in y per update
+	 */
+	protected float getDy() {
+		return store.dy[slot];
+	}
+
+	/**
+	 * @param dy this sprites new change in y per update
+	 */
+	protected void setDy(float dy) {
+		store.dy[slot] = dy;
+	}
+
+	/**
+	 * @param friction how much this sprites dx moves towards 0 each update
+	 */
+	protected void setFriction(float friction) {
+		store.friction[slot] = friction;
+	}
+
+	/**
+	 * @return the height of this sprites image as of its last update
+	 */
+	protected float getHeight() {
+		return store.height[slot];
+	}
+
+	/**
+	 * @return whether this sprite is drawn flipped
+	 */
+	protected boolean isDrawFlipped() {
+		return store.flipped[slot];
+	}
+
+	/**
+	 * Sets whether this sprite is drawn mirrored, its animations must have {@link Animation.Effect#FLIPPED} prepared.
+	 * @param flipped whether to draw this sprite flipped
+	 */
+	protected void setDrawFlipped(boolean flipped) {
+		store.flipped[slot] = flipped;
+	}
+
+	/**
+	 * @return the x offset this sprites image is drawn at
+	 */
+	int getXOffSet() {
+		return store.xOffSet[slot];
+	}
+
+	/**
+	 * @return the y offset this sprites image is drawn at
+	 */
+	int getYOffSet() {
+		return store.yOffSet[slot];
+	}
+
+	/**
+	 * @return the index of this sprites slot in its store
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
 	/**
 	 * @return this sprites current image
 	 */
@@ -290,13 +368,36 @@ public class Sprite {
         return anim.getImage();
     }
 
-    protected void saveX() {
-        lastX = x;
-    }
+	/**
+	 * @param effect the effect to apply
+	 * @return this sprites current image with a pre-rendered effect applied
+	 */
+	protected Image getImage(Animation.Effect effect) {
+		return anim.getImage(effect);
+	}
 
-    protected void saveY() {
-        lastY = y;
-    }
+	/**
+	 * Gets the image to draw for this sprite, this is its current animation frame, or its pre-rendered mirror image
+	 * while drawn flipped, unless a subclass changes it. The image is drawn as it is, without scaling.
+	 * @return the image to draw
+	 */
+	protected Image getDrawImage() {
+		return isDrawFlipped() ? getImage(Animation.Effect.FLIPPED) : getImage();
+	}
+
+	/**
+	 * @return the width of this sprites current image
+	 */
+	protected int getImageWidth() {
+		return anim.getWidth();
+	}
+
+	/**
+	 * @return the height of this sprites current image
+	 */
+	protected int getImageHeight() {
+		return anim.getHeight();
+	}
 
 	void setPlayer(Player player) {
 		this.player = player;
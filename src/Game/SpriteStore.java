@@ -0,0 +1,284 @@
+package Game;
+
+import java.util.Arrays;
+
+/**
+ * This class stores the state of every sprite in a map in parallel arrays, one slot per sprite.<br>
+ * A {@link Sprite} is only a view of its slot, so the positions, velocities and animation cursors of all the sprites
+ * sit next to each other in memory. The work every sprite does the same way each update (gravity, friction and
+ * advancing animations) is done by the systems in this class, which walk the arrays in a single pass rather than
+ * calling each sprite in turn. Only the sprites marked awake are touched by the systems, a sleeping sprite stays as it
+ * is until it is woken, when its animation catches up on the time it slept through.
+ * @author Connor Stewart
+ */
+public final class SpriteStore {
+
+	/** The increase in dy per update. */
+	static final float GRAVITY_INCREASE = 0.5f;
+
+	/** The maximum value of dy. */
+	static final float GRAVITY_MAX = 9.8f;
+
+	/** The amount of slots to start with. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The amount of slots in use. */
+	private int count;
+
+	//positions and velocities (pixels per update)
+	float[] x;
+	float[] y;
+	float[] dx;
+	float[] dy;
+
+	//collision rectangles
+	float[] rectWidth;
+	float[] rectHeight;
+	int[] xOffSet;
+	int[] yOffSet;
+
+	//the size of the current animation frame as of the last gravity update
+	float[] width;
+	float[] height;
+
+	/** Whether each sprite is drawn flipped. */
+	boolean[] flipped;
+
+	/** How much each sprites dx moves towards 0 each update, 0 for no friction. */
+	float[] friction;
+
+	/** Whether each sprite is updated by the systems. */
+	boolean[] awake;
+
+	/** The animation clock when each sleeping sprite was put to sleep, see {@link #sleep}. */
+	long[] sleptAt;
+
+	//the current animation of each sprite, with its cursor and timing, see Animation
+	Animation[] animations;
+	int[] frameIndex;
+	long[] animTime;
+	int[] frameCount;
+	int[] frameTime;
+	float[] animSpeed;
+	boolean[] loop;
+
+	/**
+	 * Creates an empty store.
+	 */
+	public SpriteStore() {
+		resize(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Adds a slot for a new sprite.
+	 * @param x the sprites x coordinate
+	 * @param y the sprites y coordinate
+	 * @param xOffSet the x offset of the collision rectangle
+	 * @param yOffSet the y offset of the collision rectangle
+	 * @param rectWidth the width of the collision rectangle
+	 * @param rectHeight the height of the collision rectangle
+	 * @return the index of the slot
+	 */
+	int add(float x, float y, int xOffSet, int yOffSet, float rectWidth, float rectHeight) {
+		if (count == this.x.length)
+			resize(count * 2);
+
+		int slot = count++;
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.xOffSet[slot] = xOffSet;
+		this.yOffSet[slot] = yOffSet;
+		this.rectWidth[slot] = rectWidth;
+		this.rectHeight[slot] = rectHeight;
+		animSpeed[slot] = 1;
+		return slot;
+	}
+
+	/**
+	 * Applies gravity to every awake sprite.
+	 */
+	public void applyGravity() {
+		for (int i = 0; i < count; i++)
+			if (awake[i])
+				applyGravity(i);
+	}
+
+	/**
+	 * Applies gravity to a sprite, and records the size of its current frame.
+	 * @param i the slot of the sprite
+	 */
+	public void applyGravity(int i) {
+		width[i] = animations[i].getWidth();
+		height[i] = animations[i].getHeight();
+
+		if (dy[i] < GRAVITY_MAX)
+			dy[i] = (dy[i] + GRAVITY_INCREASE > GRAVITY_MAX) ? GRAVITY_MAX : dy[i] + GRAVITY_INCREASE;
+	}
+
+	/**
+	 * Slows every awake sprite with friction.
+	 */
+	public void applyFriction() {
+		for (int i = 0; i < count; i++)
+			if (awake[i])
+				applyFriction(i);
+	}
+
+	/**
+	 * Slows a sprite with friction, stopping it once its dx would change sign.
+	 * @param i the slot of the sprite
+	 */
+	public void applyFriction(int i) {
+		float f = friction[i];
+		if (f == 0 || dx[i] == 0)
+			return;
+
+		if (dx[i] > 0)
+			dx[i] = (dx[i] - f < 0) ? 0 : dx[i] - f;
+		else
+			dx[i] = (dx[i] + f > 0) ? 0 : dx[i] + f;
+	}
+
+	/**
+	 * Advances the animation of every awake sprite.
+	 * @param elapsedTime the time elapsed in milliseconds
+	 */
+	public void updateAnimations(long elapsedTime) {
+		for (int i = 0; i < count; i++)
+			if (awake[i])
+				updateAnimation(i, elapsedTime);
+	}
+
+	/**
+	 * Advances the animation of a sprite, moving to its next frame once the current one has been shown long enough.
+	 * @param i the slot of the sprite
+	 * @param elapsedTime the time elapsed in milliseconds
+	 */
+	public void updateAnimation(int i, long elapsedTime) {
+		if (frameCount[i] <= 1)
+			return;
+
+		animTime[i] += (long) (elapsedTime * animSpeed[i]);
+
+		if (animTime[i] > frameTime[i]) {
+			animTime[i] = 0;
+
+			if (frameIndex[i] == frameCount[i] - 1) {
+				if (loop[i])
+					frameIndex[i] = 0;
+			} else {
+				frameIndex[i]++;
+			}
+		}
+	}
+
+	/**
+	 * Advances the animation of a sprite by a long time at once, as if it had been updated all along.<br>
+	 * This is close to, but not exactly, where many smaller updates would have left it, as those also lose the time
+	 * past the end of each frame.
+	 * @param i the slot of the sprite
+	 * @param elapsedTime the time elapsed in milliseconds
+	 */
+	public void catchUpAnimation(int i, long elapsedTime) {
+		if (frameCount[i] <= 1 || elapsedTime <= 0)
+			return;
+
+		if (frameTime[i] <= 0) {
+			updateAnimation(i, elapsedTime);
+			return;
+		}
+
+		long time = animTime[i] + (long) (elapsedTime * animSpeed[i]);
+		long frames = time / frameTime[i];
+		animTime[i] = time % frameTime[i];
+
+		if (loop[i])
+			frameIndex[i] = (int) ((frameIndex[i] + frames) % frameCount[i]);
+		else
+			frameIndex[i] = (int) Math.min(frameIndex[i] + frames, frameCount[i] - 1);
+	}
+
+	/**
+	 * Stops a sprite being updated by the systems until it is woken.
+	 * @param i the slot of the sprite
+	 * @param clock the total milliseconds animations have been advanced by so far
+	 */
+	public void sleep(int i, long clock) {
+		awake[i] = false;
+		sleptAt[i] = clock;
+	}
+
+	/**
+	 * Starts updating a sleeping sprite again, catching its animation up on the time it slept through.
+	 * @param i the slot of the sprite
+	 * @param clock the total milliseconds animations have been advanced by so far
+	 */
+	public void wake(int i, long clock) {
+		awake[i] = true;
+		catchUpAnimation(i, clock - sleptAt[i]);
+	}
+
+	/**
+	 * Sets whether a sprite is updated by the systems.
+	 * @param i the slot of the sprite
+	 * @param awake whether to update it
+	 */
+	public void setAwake(int i, boolean awake) {
+		this.awake[i] = awake;
+	}
+
+	/**
+	 * @param i the slot of the sprite
+	 * @return whether the sprite is updated by the systems
+	 */
+	public boolean isAwake(int i) {
+		return awake[i];
+	}
+
+	/**
+	 * @return the amount of sprites in the store
+	 */
+	public int size() {
+		return count;
+	}
+
+	private void resize(int capacity) {
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		dx = grow(dx, capacity);
+		dy = grow(dy, capacity);
+		rectWidth = grow(rectWidth, capacity);
+		rectHeight = grow(rectHeight, capacity);
+		width = grow(width, capacity);
+		height = grow(height, capacity);
+		friction = grow(friction, capacity);
+		animSpeed = grow(animSpeed, capacity);
+		xOffSet = grow(xOffSet, capacity);
+		yOffSet = grow(yOffSet, capacity);
+		frameIndex = grow(frameIndex, capacity);
+		frameCount = grow(frameCount, capacity);
+		frameTime = grow(frameTime, capacity);
+		animTime = grow(animTime, capacity);
+		sleptAt = grow(sleptAt, capacity);
+		flipped = grow(flipped, capacity);
+		awake = grow(awake, capacity);
+		loop = grow(loop, capacity);
+		animations = (animations == null) ? new Animation[capacity] : Arrays.copyOf(animations, capacity);
+	}
+
+	private static float[] grow(float[] array, int capacity) {
+		return (array == null) ? new float[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+	private static int[] grow(int[] array, int capacity) {
+		return (array == null) ? new int[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+	private static long[] grow(long[] array, int capacity) {
+		return (array == null) ? new long[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+	private static boolean[] grow(boolean[] array, int capacity) {
+		return (array == null) ? new boolean[capacity] : Arrays.copyOf(array, capacity);
+	}
+}
@@ -0,0 +1,183 @@
+package Game;
+
+import Game.Physics.LineOfSightCache;
+import Game.Physics.TileGrid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves the awake sprites of a map in parallel, see {@link Sprite#move}.<br>
+ * The map is split into regions of {@link #REGION_CHUNKS} chunk columns, and the sprites are sorted into the region
+ * they are in. Neighbouring regions are moved together as one task on a {@link ForkJoinPool}, split until each task
+ * has only a few sprites. A sprite only changes its own state while moving, so the sprites can be moved in any order.<br>
+ * The one thing the sprites share is the line of sight cache of the tiles. Each region checks line of sight through its
+ * own {@link LineOfSightCache.Batch}, and once every sprite has moved the batches are merged into the cache in region
+ * order. How the regions are split into tasks, and how many threads run them, never changes the result.<br>
+ * The amount of threads is set with the game.updateThreads system property, and defaults to the amount of processors.
+ * @author Connor Stewart
+ */
+public final class SpriteUpdater {
+
+	/** The width of a region in chunks. */
+	private static final int REGION_CHUNKS = 4;
+
+	/** A task with at most this many sprites moves them itself rather than splitting. */
+	private static final int TASK_SPRITES = 64;
+
+	/** The threads sprites are moved on, null if they are moved on the updating thread. */
+	private static final ForkJoinPool POOL;
+
+	static {
+		int threads = Integer.getInteger("game.updateThreads", Runtime.getRuntime().availableProcessors());
+		POOL = (threads > 1) ? new ForkJoinPool(threads) : null;
+	}
+
+	/** The store holding the state of the sprites. */
+	private final SpriteStore store;
+
+	/** The cache line of sight is checked against. */
+	private final LineOfSightCache cache;
+
+	/** The x coordinate of the left edge of the first region in pixels. */
+	private final float minX;
+
+	/** The width of a region in pixels. */
+	private final float regionWidth;
+
+	/** The checks made by each region while moving, merged into the cache afterwards. */
+	private final LineOfSightCache.Batch[] batches;
+
+	/** Where each regions sprites start in {@link #sorted}, followed by the end of the last region. */
+	private final int[] regionStarts;
+
+	/** Where the next sprite of each region goes while sorting, kept to avoid allocating it every update. */
+	private final int[] counts;
+
+	/** The task moving every region, reinitialized for each update. */
+	private final Regions all;
+
+	/** The awake sprites sorted by region, in the order they are in the map within each region. */
+	private Sprite[] sorted = new Sprite[0];
+
+	/** The time step of the update in progress. */
+	private float elapsedTime;
+
+	/**
+	 * Creates an updater for the sprites of a map.
+	 * @param map the map
+	 */
+	public SpriteUpdater(Map map) {
+		TileGrid tiles = map.getTileGrid();
+		store = map.getSpriteStore();
+		cache = tiles.getLineOfSightCache();
+
+		minX = map.getMinX();
+		regionWidth = REGION_CHUNKS * TileGrid.CHUNK_SIZE * tiles.getTileWidth();
+
+		int regions = Math.max(1, (int) Math.ceil(map.getWidth() / regionWidth));
+		regionStarts = new int[regions + 1];
+		counts = new int[regions + 1];
+		batches = new LineOfSightCache.Batch[regions];
+		for (int i = 0; i < regions; i++)
+			batches[i] = new LineOfSightCache.Batch(cache);
+		all = new Regions(0, regions);
+	}
+
+	/**
+	 * Moves every awake sprite, then merges their line of sight checks into the cache.
+	 * @param sprites the sprites of the map
+	 * @param elapsedTime the time elapsed since the last update
+	 */
+	public void move(List<Sprite> sprites, float elapsedTime) {
+		this.elapsedTime = elapsedTime;
+		int count = sort(sprites);
+		cache.checkVersion();
+
+		all.reinitialize();
+		if (POOL != null && count > TASK_SPRITES)
+			POOL.invoke(all);
+		else
+			all.compute();
+
+		for (LineOfSightCache.Batch batch : batches)
+			cache.merge(batch);
+	}
+
+	/**
+	 * Sorts the awake sprites into {@link #sorted} by region, keeping their order within each region.
+	 * @param sprites the sprites of the map
+	 * @return the amount of awake sprites
+	 */
+	private int sort(List<Sprite> sprites) {
+		int regions = batches.length;
+		Arrays.fill(counts, 0);
+
+		int count = 0;
+		for (Sprite sprite : sprites) {
+			if (store.isAwake(sprite.getSlot())) {
+				counts[regionOf(sprite) + 1]++;
+				count++;
+			}
+		}
+
+		if (sorted.length < count)
+			sorted = new Sprite[Math.max(count, sorted.length * 2)];
+
+		for (int i = 0; i < regions; i++)
+			counts[i + 1] += counts[i];
+		System.arraycopy(counts, 0, regionStarts, 0, regions + 1);
+
+		for (Sprite sprite : sprites)
+			if (store.isAwake(sprite.getSlot()))
+				sorted[counts[regionOf(sprite)]++] = sprite;
+
+		return count;
+	}
+
+	/**
+	 * Finds the region a sprite is in, sprites past either edge of the map count as being in the region at that edge.
+	 * @param sprite the sprite
+	 * @return the index of the region
+	 */
+	private int regionOf(Sprite sprite) {
+		int region = (int) Math.floor((sprite.getX() - minX) / regionWidth);
+		return Math.max(0, Math.min(region, batches.length - 1));
+	}
+
+	/**
+	 * Moves the sprites of a range of regions, splitting the range in half while it has too many sprites.
+	 */
+	private final class Regions extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The first region to move. */
+		private final int from;
+
+		/** The region after the last one to move. */
+		private final int to;
+
+		Regions(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1 && regionStarts[to] - regionStarts[from] > TASK_SPRITES) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Regions(from, middle), new Regions(middle, to));
+				return;
+			}
+
+			for (int region = from; region < to; region++) {
+				LineOfSightCache.Batch batch = batches[region];
+				for (int i = regionStarts[region]; i < regionStarts[region + 1]; i++)
+					sorted[i].move(elapsedTime, batch);
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package Game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Generates Tiled JSON maps of any size, used to benchmark the game on maps larger and busier than the shipped levels.<br>
+ * The map is solid ground with floating platforms, coins spread out above the ground and slimes on it. The player
+ * starts at the left and the signpost is at the far right. The same arguments always generate the same map.
+ * @author Connor Stewart
+ */
+public final class SyntheticMap {
+
+	/** The size of a tile in pixels. */
+	private static final int TILE_SIZE = 16;
+
+	/** The amount of rows in every generated map. */
+	public static final int ROWS = 60;
+
+	/** The amount of rows of ground at the bottom of the map. */
+	private static final int GROUND_ROWS = 4;
+
+	/** The tile id of grass, which tops the ground and platforms. */
+	private static final int GRASS = 1;
+
+	/** The tile id of dirt, which fills the ground. */
+	private static final int DIRT = 2;
+
+	private SyntheticMap() {}
+
+	/**
+	 * Generates a map and writes it to a temporary file, which is deleted when the program exits.
+	 * @param columns the width of the map in tiles
+	 * @param sprites the amount of coins and slimes in the map, a third of them are slimes
+	 * @param seed the seed used to place the platforms
+	 * @return the location of the map
+	 * @throws IOException if the map could not be written
+	 */
+	public static String write(int columns, int sprites, long seed) throws IOException {
+		File file = File.createTempFile("synthetic-" + columns + "x" + sprites + "-", ".json");
+		file.deleteOnExit();
+
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			out.write(generate(columns, sprites, seed));
+		}
+
+		return file.getPath();
+	}
+
+	/**
+	 * Generates a map.
+	 * @param columns the width of the map in tiles
+	 * @param sprites the amount of coins and slimes in the map, a third of them are slimes
+	 * @param seed the seed used to place the platforms
+	 * @return the map as Tiled JSON
+	 */
+	public static String generate(int columns, int sprites, long seed) {
+		Random random = new Random(seed);
+		int[] data = new int[columns * ROWS];
+		int groundRow = ROWS - GROUND_ROWS;
+
+		for (int x = 0; x < columns; x++) {
+			data[groundRow * columns + x] = GRASS;
+			for (int y = groundRow + 1; y < ROWS; y++)
+				data[y * columns + x] = DIRT;
+		}
+
+		//a platform every few columns, low enough to jump onto from the ground
+		for (int x = 8; x + 5 < columns - 8; x += 8 + random.nextInt(8)) {
+			int y = groundRow - 4 - random.nextInt(4);
+			for (int i = 0; i < 5; i++)
+				data[y * columns + x + i] = GRASS;
+		}
+
+		StringBuilder json = new StringBuilder(data.length * 3 + sprites * 40 + 512);
+		json.append("{\"height\":").append(ROWS).append(",\"width\":").append(columns)
+				.append(",\"infinite\":false,\"tilewidth\":").append(TILE_SIZE).append(",\"tileheight\":").append(TILE_SIZE)
+				.append(",\"layers\":[{\"name\":\"MapTiles\",\"width\":").append(columns).append(",\"height\":").append(ROWS)
+				.append(",\"data\":[");
+
+		for (int i = 0; i < data.length; i++) {
+			if (i > 0)
+				json.append(',');
+			json.append(data[i]);
+		}
+
+		json.append("]},{\"name\":\"Objects\",\"objects\":[");
+
+		//spread the sprites evenly between the player and the signpost
+		int groundY = groundRow * TILE_SIZE;
+		int start = 8 * TILE_SIZE;
+		int end = (columns - 4) * TILE_SIZE;
+
+		for (int i = 0; i < sprites; i++) {
+			int x = start + (int) ((long) (end - start) * i / Math.max(1, sprites));
+
+			if (i % 3 == 2)
+				appendObject(json, "slime", x, groundY - 16);
+			else
+				appendObject(json, "coin", x, groundY - 24 - (i % 4) * 8);
+			json.append(',');
+		}
+
+		appendObject(json, "signpost", end, groundY - 30);
+		json.append(',');
+
+		//the player is last so every other sprite is given it
+		appendObject(json, "player", 3 * TILE_SIZE, groundY - 32);
+
+		json.append("]}],\"tilesets\":[{\"firstgid\":1,\"tiles\":[")
+				.append("{\"id\":0,\"image\":\"../images/grass.png\"},")
+				.append("{\"id\":1,\"image\":\"../images/dirt.png\"}]}]}");
+
+		return json.toString();
+	}
+
+	private static void appendObject(StringBuilder json, String name, int x, int y) {
+		json.append("{\"name\":\"").append(name).append("\",\"x\":").append(x).append(",\"y\":").append(y).append('}');
+	}
+}
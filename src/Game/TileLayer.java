@@ -0,0 +1,220 @@
+package Game;
+
+import Game.Entities.Tile;
+import Game.Physics.TileGrid;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.VolatileImage;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class draws the static tiles of a map from a set of pre-rendered chunk images.<br>
+ * Each chunk is rendered once and then drawn as a single image, rather than drawing each tile every frame.
+ * @author Connor Stewart
+ */
+public class TileLayer {
+
+	/** The width and height of a chunk in pixels. */
+	public static final int CHUNK_SIZE = 256;
+
+	/** The tiles to draw. */
+	private final TileGrid tiles;
+
+	/** The world x coordinate of the first chunk. */
+	private final int originX;
+
+	/** The world y coordinate of the first chunk. */
+	private final int originY;
+
+	/** The amount of chunk columns. */
+	private final int columns;
+
+	/** The amount of chunk rows. */
+	private final int rows;
+
+	/** The rendered chunks stored row by row, null until they are first rendered. */
+	private final VolatileImage[] chunks;
+
+	/** The areas which have changed since the chunks were last drawn. */
+	private final ConcurrentLinkedQueue<Rectangle2D.Float> invalidated = new ConcurrentLinkedQueue<>();
+
+	/** The tiles inside the chunk being rendered, reused between chunks. */
+	private final ArrayList<Tile> chunkTiles = new ArrayList<>();
+
+	/** The area visible to the camera being drawn to, reused between draws. */
+	private final Rectangle2D.Float visibleArea = new Rectangle2D.Float();
+
+	/**
+	 * Creates a tile layer for the given tiles, no chunks are rendered until they are needed or {@link #prebake} is called.
+	 * @param tiles the tiles to draw
+	 */
+	public TileLayer(TileGrid tiles) {
+		this.tiles = tiles;
+
+		originX = tiles.getMinX() * tiles.getTileWidth();
+		originY = tiles.getMinY() * tiles.getTileHeight();
+
+		int layerWidth = tiles.getColumns() * tiles.getTileWidth();
+		int layerHeight = tiles.getRows() * tiles.getTileHeight();
+		columns = (layerWidth + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		rows = (layerHeight + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+		chunks = new VolatileImage[columns * rows];
+	}
+
+	/**
+	 * Renders every chunk up front so that the first frames do not have to.
+	 * @param gc the graphics configuration the chunks will be drawn with, this must be the one the camera drawing the
+	 * layer gives from {@link Camera#getGraphicsConfiguration()}, otherwise every chunk is rendered again when first drawn
+	 */
+	public void prebake(GraphicsConfiguration gc) {
+		flushInvalidated();
+
+		for (int i = 0; i < chunks.length; i++)
+			if (isLoaded(i))
+				validateChunk(i, gc);
+	}
+
+	/**
+	 * Marks the rendered chunks overlapping an area to be rendered again with the tiles now there.<br>
+	 * This can be called from any thread, the chunks are thrown away by the thread drawing the layer before its next draw.
+	 * @param x the world x coordinate of the area
+	 * @param y the world y coordinate of the area
+	 * @param width the width of the area
+	 * @param height the height of the area
+	 */
+	public void invalidate(float x, float y, float width, float height) {
+		invalidated.add(new Rectangle2D.Float(x, y, width, height));
+	}
+
+	/**
+	 * Throws away the rendered chunks in the areas passed to {@link #invalidate}.
+	 */
+	private void flushInvalidated() {
+		Rectangle2D.Float area;
+		while ((area = invalidated.poll()) != null)
+			flushChunks(area.x, area.y, area.width, area.height);
+	}
+
+	/**
+	 * Throws away the rendered chunks overlapping an area.
+	 * @param x the world x coordinate of the area
+	 * @param y the world y coordinate of the area
+	 * @param width the width of the area
+	 * @param height the height of the area
+	 */
+	private void flushChunks(float x, float y, float width, float height) {
+		int startColumn = Math.max(0, (int) Math.floor((x - originX) / CHUNK_SIZE));
+		int startRow = Math.max(0, (int) Math.floor((y - originY) / CHUNK_SIZE));
+		int endColumn = Math.min(columns - 1, (int) Math.floor((x + width - 1 - originX) / CHUNK_SIZE));
+		int endRow = Math.min(rows - 1, (int) Math.floor((y + height - 1 - originY) / CHUNK_SIZE));
+
+		for (int row = startRow; row <= endRow; row++) {
+			for (int column = startColumn; column <= endColumn; column++) {
+				int index = row * columns + column;
+
+				if (chunks[index] != null) {
+					chunks[index].flush();
+					chunks[index] = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws the chunks that are visible to the camera.
+	 * @param cam the camera to draw to
+	 */
+	public void draw(Camera cam) {
+		flushInvalidated();
+
+		Graphics2D g = cam.getGraphics();
+		GraphicsConfiguration gc = cam.getGraphicsConfiguration();
+		Rectangle2D.Float area = cam.getVisibleArea(visibleArea);
+
+		int startColumn = Math.max(0, (int) Math.floor((area.x - originX) / CHUNK_SIZE));
+		int startRow = Math.max(0, (int) Math.floor((area.y - originY) / CHUNK_SIZE));
+		int endColumn = Math.min(columns - 1, (int) Math.floor((area.x + area.width - originX) / CHUNK_SIZE));
+		int endRow = Math.min(rows - 1, (int) Math.floor((area.y + area.height - originY) / CHUNK_SIZE));
+
+		for (int row = startRow; row <= endRow; row++) {
+			for (int column = startColumn; column <= endColumn; column++) {
+				int index = row * columns + column;
+
+				//nothing to draw until the tiles there have been streamed in
+				if (!isLoaded(index))
+					continue;
+
+				int drawX = (int) cam.toCameraX(originX + column * CHUNK_SIZE);
+				int drawY = (int) cam.toCameraY(originY + row * CHUNK_SIZE);
+
+				//the chunk can be lost while drawing it, if so render it again
+				do {
+					VolatileImage chunk = validateChunk(index, gc);
+					g.drawImage(chunk, drawX, drawY, null);
+				} while (chunks[index].contentsLost());
+			}
+		}
+	}
+
+	/**
+	 * Checks if the tiles under a chunk have been loaded into the grid.
+	 * @param index the index of the chunk
+	 * @return whether the tiles are loaded
+	 */
+	private boolean isLoaded(int index) {
+		//chunks start on a tile inside the grid, even when the last ones hang over its edge
+		return tiles.isLoaded(originX + (index % columns) * CHUNK_SIZE, originY + (index / columns) * CHUNK_SIZE);
+	}
+
+	/**
+	 * Makes sure a chunk exists and has valid contents, rendering it if it does not.
+	 * @param index the index of the chunk
+	 * @param gc the graphics configuration the chunk will be drawn with
+	 * @return the valid chunk
+	 */
+	private VolatileImage validateChunk(int index, GraphicsConfiguration gc) {
+		VolatileImage chunk = chunks[index];
+		int state = (chunk == null) ? VolatileImage.IMAGE_INCOMPATIBLE : chunk.validate(gc);
+
+		if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+			if (chunk != null)
+				chunk.flush();
+
+			chunk = gc.createCompatibleVolatileImage(CHUNK_SIZE, CHUNK_SIZE, Transparency.TRANSLUCENT);
+			chunks[index] = chunk;
+			renderChunk(index, chunk);
+		} else if (state == VolatileImage.IMAGE_RESTORED) {
+			renderChunk(index, chunk);
+		}
+
+		return chunk;
+	}
+
+	/**
+	 * Draws the tiles inside a chunk to its image.
+	 * @param index the index of the chunk
+	 * @param chunk the image to draw to
+	 */
+	private void renderChunk(int index, VolatileImage chunk) {
+		int chunkX = originX + (index % columns) * CHUNK_SIZE;
+		int chunkY = originY + (index / columns) * CHUNK_SIZE;
+
+		Graphics2D g = chunk.createGraphics();
+
+		//clear to transparent so the background shows through
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, CHUNK_SIZE, CHUNK_SIZE);
+		g.setComposite(AlphaComposite.SrcOver);
+
+		chunkTiles.clear();
+		tiles.collectTiles(chunkX, chunkY, CHUNK_SIZE, CHUNK_SIZE, chunkTiles);
+
+		for (Tile tile : chunkTiles)
+			g.drawImage(tile.getImage(), (int) tile.getX() - chunkX, (int) tile.getY() - chunkY, tile.getWidth(), tile.getHeight(), null);
+
+		g.dispose();
+	}
+}
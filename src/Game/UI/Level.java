@@ -1,18 +1,27 @@
 package Game.UI;
 
+import Game.Assets;
 import Game.Camera;
 import Game.Entities.Player;
 import Game.Entities.Slime;
-import Game.Entities.Tile;
+import Game.Input.InputQueue;
+import Game.Input.InputRecording;
 import Game.Map;
-import com.sun.javaws.exceptions.InvalidArgumentException;
-import Game.Sprite;
+import Game.MapFormatException;
+import Game.Profiling.Profiler;
+import Game.Replay;
+import Game.Simulation;
+import Game.Snapshot;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * This class represents a single instance of a game level.
@@ -26,6 +35,12 @@ public class Level extends JFrame implements KeyListener {
 	/** The location of this levels tile map. */
 	private final String tileMapLocation;
 
+	/** The location of the background image. */
+	private static final String BACKGROUND = "images/background.png";
+
+	/** The map being loaded in the background by {@link #preload}, null if it has not been preloaded. */
+	private volatile Future<Map> preloaded;
+
 	/** The map containing tiles and sprites. */
 	private Map tileMap;
 
@@ -38,11 +53,77 @@ public class Level extends JFrame implements KeyListener {
 	/** The current frames per second. */
 	private int fps;
 
-	/** A list of keys currently being pressed. */
-	private ArrayList<String> keysDown = new ArrayList<>();
+	/** The fps as drawn, only rebuilt when the fps changes so frames do not create strings. */
+	private String fpsText = "FPS: 0";
+
+	/** The life points shown in {@link #lifeText}. */
+	private int shownLife;
+
+	/** The players life as drawn, null until the first frame. */
+	private String lifeText;
+
+	/** The coins shown in {@link #coinsText}. */
+	private int shownCoins;
+
+	/** The players coins as drawn, null until the first frame. */
+	private String coinsText;
+
+	/** The default amount of times the game is updated per second. */
+	public static final int DEFAULT_UPDATE_RATE = 60;
+
+	/** The default most frames drawn per second. */
+	public static final int DEFAULT_FRAME_CAP = 60;
+
+	/** The amount of nanos in a second. */
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	/** The most updates the game can fall behind by before the time behind is dropped. */
+	private static final int MAX_SKIP = 5;
+
+	/** How long before a frame is due the loop stops sleeping and spins instead, in nanos. */
+	private static final long SPIN_TIME = 2_000_000L;
+
+	/** The amount of times the game is updated per second. */
+	private int updateRate = DEFAULT_UPDATE_RATE;
+
+	/** The most frames drawn per second, 0 for no limit. */
+	private int frameCap = DEFAULT_FRAME_CAP;
+
+	/** Whether frames wait for the display to refresh. */
+	private boolean vsync = false;
+
+	/** Whether the level is updated on its own thread, see {@link #threadedLoop()}. */
+	private boolean threaded = false;
+
+	/** The game logic of the level. */
+	private Simulation simulation;
 
-	/** A list of sprites that have been marked for removal. */
-	private ArrayList<Sprite> removalQueue = new ArrayList<>();
+	/** Records the input of each update when recording is on, null otherwise. */
+	private InputRecording recording;
+
+	/** The file to save recordings to, null to not record. */
+	private File recordingFile;
+
+	/** Whether the simulation thread should keep running. */
+	private volatile boolean running;
+
+	/** The time the next frame is due. */
+	private long nextFrame;
+
+	/** The time the fps was last calculated. */
+	private long fpsTime;
+
+	/** The amount of frames drawn since the fps was last calculated. */
+	private int frameCount;
+
+	/** The {@link System#nanoTime()} the last frame started. */
+	private long lastFrameStart;
+
+	/** Times each phase of the frames and updates, its overlay is toggled with F3. */
+	private final Profiler profiler = new Profiler();
+
+	/** The key events which have not been applied to an update yet. */
+	private final InputQueue input = new InputQueue(InputQueue.DEFAULT_CAPACITY);
 
 	/**
 	 * Creates a new level with a given name and sets the location of its tilemap.
@@ -59,16 +140,15 @@ public class Level extends JFrame implements KeyListener {
 	 * @param fullscreen whether to display the level in fullscreen
 	 */
 	void load(boolean fullscreen) {
-		try {
-			tileMap = new Map(tileMapLocation, this);
-		} catch (InvalidArgumentException e) {
-			e.printStackTrace();
-		}
+		tileMap = takeMap();
+		if (tileMap == null)
+			return;
 
-		cam = new Camera(this,600,338, tileMap.getWidth(), tileMap.getHeight(), fullscreen);
-		cam.setBackground(new ImageIcon("images/background.png").getImage());
+		cam = new Camera(this,600,338, tileMap.getMinX(), tileMap.getMinY(),
+				tileMap.getMinX() + tileMap.getWidth(), tileMap.getMinY() + tileMap.getHeight(), fullscreen);
+		cam.setBackground(Assets.getImage(BACKGROUND));
+		cam.setVSync(vsync);
 
-		player = tileMap.getPlayer();
 
 		if (fullscreen) {
 			setExtendedState(JFrame.MAXIMIZED_BOTH);
@@ -77,122 +157,368 @@ public class Level extends JFrame implements KeyListener {
 			setSize(1000, 500);
 		}
 
+		//the camera draws to the window itself using a buffer strategy
+		setIgnoreRepaint(true);
 		setVisible(true);
 		addKeyListener(this);
 
 		setFont(new Font("Dialog", Font.PLAIN, 30));
 
-		cam.follow(player);
-		fixedTimeLoop();
+		player = tileMap.getPlayer();
+		simulation = new Simulation(tileMap, System.nanoTime());
+
+		//forget any keys from the last time this level was played
+		input.drainTo(simulation.getKeys(), System.nanoTime(), null);
+		simulation.getKeys().clear();
+
+		recording = (recordingFile != null) ? new InputRecording(tileMapLocation, tileMap.getSeed(), updateRate,
+				simulation.getActiveRadius()) : null;
+
+		profiler.reset();
+		profiler.register(name);
+
+		if (threaded)
+			threadedLoop();
+		else
+			fixedTimeLoop();
+
+		tileMap.unload();
+		profiler.unregister();
+		saveRecording();
+	}
+
+	/**
+	 * Starts loading this levels map and assets in the background, so that {@link #load} can start straight away.
+	 * @param executor the executor to load the map on
+	 * @param whenDone called on the loading thread once the map has loaded or failed to load
+	 */
+	void preload(ExecutorService executor, Runnable whenDone) {
+		preloaded = executor.submit(() -> {
+			try {
+				return buildMap();
+			} finally {
+				whenDone.run();
+			}
+		});
+	}
+
+	/**
+	 * Gets the preloaded map, waiting for it if it is still loading, or loads it now if it was not preloaded.<br>
+	 * A preloaded map can only be played once, so it is forgotten once it has been taken.
+	 * @return the map, or null if it could not be loaded
+	 */
+	private Map takeMap() {
+		Future<Map> preloaded = this.preloaded;
+		this.preloaded = null;
+
+		try {
+			return (preloaded != null) ? preloaded.get() : buildMap();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+		} catch (MapFormatException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Loads this levels map, the assets it uses and pre-renders its tiles.
+	 * @return the loaded map
+	 * @throws MapFormatException if the map is an invalid format
+	 */
+	private Map buildMap() throws MapFormatException {
+		Map map = new Map(tileMapLocation, this);
+		Assets.getImage(BACKGROUND);
+
+		//the screen configuration of this window, which the camera draws the chunks with too
+		map.getTileLayer().prebake(getGraphicsConfiguration());
+		return map;
 	}
 
     /**
-     * Updates the games sprites.
-     * @param elapsedTime the time since the last update
+     * Applies the input for an update and updates the game.
+     * @param elapsedTime the fixed time step of an update in milliseconds
+     * @param time the {@link System#nanoTime()} the update was due
      */
-	private void update(long elapsedTime) {
-		player.update(elapsedTime, keysDown);
+	private void update(float elapsedTime, long time) {
+		long start = System.nanoTime();
+
+		//apply the key events which happened before this update was due
+		input.drainTo(simulation.getKeys(), time, recording);
 
-		tileMap.getSprites().removeAll(removalQueue);
-		removalQueue.clear();
+		if (recording != null)
+			recording.endTick();
+
+		start = profiler.mark(Profiler.Phase.INPUT, start);
+		simulation.update(elapsedTime, time, cam);
+		profiler.mark(Profiler.Phase.UPDATE, start);
+		profiler.setSpriteCounts(simulation.getActiveCount(), simulation.getSleepingCount());
+	}
 
-		for (Sprite sprite : tileMap.getSprites()) {
-			sprite.update(elapsedTime);
+	/**
+	 * Saves the recording of the last play, if recording is on.
+	 */
+	private void saveRecording() {
+		if (recording == null)
+			return;
 
-			if (player != null)
-				if (sprite.collides(player))
-					if (player.collided(sprite))
-						removalQueue.add(sprite);
+		recording.finish(player);
+		try {
+			recording.write(recordingFile);
+		} catch (IOException e) {
+			System.err.println("Failed to save recording: " + recordingFile);
+			e.printStackTrace();
 		}
+
+		recording = null;
 	}
 
     /**
-     * Draws the games sprites.
-     * @param alpha the time between game updates, normalised (0 to 1)
-     * @param elapsedTime the time since the last draw
+     * Draws the level as it was between the last two updates.
+     * @param snapshot the snapshot taken after the last update
+     * @param alpha the time between the last two updates to draw at, normalised (0 to 1)
      */
-	private void draw(float alpha, long elapsedTime) {
-		for (Tile tile : tileMap.getTiles())
-			tile.draw(cam, false);
+	private void draw(Snapshot snapshot, float alpha) {
+		long start = System.nanoTime();
 
-        for (Sprite sprite : tileMap.getSprites()) {
-        	sprite.updateAnim(elapsedTime);
-        	sprite.draw(cam, alpha, false);
-		}
+		//clear only once the camera has moved, so the background is drawn for the same camera position as the tiles
+		cam.centreOn(snapshot.getPlayerX(alpha), snapshot.getPlayerY(alpha));
+		cam.clear();
+		start = profiler.mark(Profiler.Phase.FLUSH, start);
 
-        player.updateAnim(elapsedTime);
-		player.draw(cam, alpha, false);
+		tileMap.getTileLayer().draw(cam);
+		start = profiler.mark(Profiler.Phase.TILES, start);
+
+		snapshot.draw(cam, alpha, false);
+
+		if (lifeText == null || snapshot.getLife() != shownLife) {
+			shownLife = snapshot.getLife();
+			lifeText = "Life: " + shownLife;
+		}
+		if (coinsText == null || snapshot.getCoins() != shownCoins) {
+			shownCoins = snapshot.getCoins();
+			coinsText = "Coins: " + shownCoins;
+		}
 
 		cam.getGraphics().setColor(Color.BLACK);
-		cam.getGraphics().drawString("FPS: " + fps, 10, 20);
+		cam.getGraphics().drawString(fpsText, 10, 20);
 		cam.getGraphics().setColor(Color.RED);
-		cam.getGraphics().drawString("Life: " + player.getLife(), 10, 40);
+		cam.getGraphics().drawString(lifeText, 10, 40);
 		cam.getGraphics().setColor(Color.ORANGE);
-		cam.getGraphics().drawString("Coins: " + player.getCoins(), 10, 60);
+		cam.getGraphics().drawString(coinsText, 10, 60);
 
-		cam.flush();
+		if (profiler.isOverlayVisible())
+			profiler.drawOverlay(cam.getGraphics(), 10, 70);
+
+		start = profiler.mark(Profiler.Phase.SPRITES, start);
+		cam.present();
+		profiler.mark(Profiler.Phase.PRESENT, start);
 	}
 
     /**
-     * A fixed timestep game loop.
+     * A fixed timestep game loop.<br>
+     * The game is updated {@link #updateRate} times per second with the same time step every update, and drawn at most
+     * {@link #frameCap} times per second. Between frames the loop sleeps until just before the next frame is due and
+     * then spins for the rest, as sleeping alone is not accurate enough to hold a steady frame rate.
      */
 	private void fixedTimeLoop() {
-		//time stuff
-		final float FRAMETIME = 1000f / 60f; //should update about 60 times per second
-		final int MAX_SKIP = 5; //can skip drawing five frames before forcing an update
-
-		int lastSecond = 0; //the last full second
-		int frameCount = 0; //the total amount of frames drawn in the last full second
+		final long step = NANOS_PER_SECOND / updateRate; //time between updates in nanos
+		final float dt = 1000f / updateRate; //time between updates in millis, passed to every update
 
-		long gameTimeStart = System.currentTimeMillis(); //the time when the game starts
-		long frameTimeStart = System.currentTimeMillis(); //the time since the last set of updates
-		long drawTimeStart = System.currentTimeMillis(); //the time since the last draw
-		float accumulator = 0; //time passed since the last update in millis
-		int loopCount;
+		long lastTime = System.nanoTime(); //the time the last loop started
+		long accumulator = 0; //time passed that has not been updated yet in nanos
+		startFrames(lastTime);
 
 		while (this.isVisible()) {
-			float alpha = 0;
-			loopCount = 0;
-
-			long deltaTime = System.currentTimeMillis() - frameTimeStart; //time passed for last loop
-			frameTimeStart = System.currentTimeMillis();
-			accumulator += deltaTime; //add time passed last loop
+			long now = System.nanoTime();
+			accumulator += now - lastTime;
+			lastTime = now;
 
             //## update ##
-			while (accumulator >= FRAMETIME) { //update if enough time has passed
-				if (loopCount >= MAX_SKIP) { //safety so not stuck updating forever on slower machines.
-					alpha = accumulator / FRAMETIME; //the alpha is how far between updates we are when we're forced to draw, between 0 and 1.
-					accumulator = 0;
+			int loopCount = 0;
+			while (accumulator >= step) {
+				if (loopCount >= MAX_SKIP) { //safety so not stuck updating forever on slower machines, drop the time we're behind
+					accumulator %= step;
 					break;
 				}
 
-				accumulator -= FRAMETIME;
-				update(deltaTime);
+				update(dt, now - accumulator + step); //the time this update was due
+				accumulator -= step;
 				loopCount++;
 			}
 
 			//## draw ##
-			long elapsedTime = System.currentTimeMillis() - drawTimeStart; //time since last draw
-			drawTimeStart = System.currentTimeMillis();
-			draw(alpha, elapsedTime);
-
-			//## calculate fps ##
-			frameCount++;
-			long timePassed = System.currentTimeMillis() - gameTimeStart; //time since the game started in milliseconds
-			int timePassesSeconds = (int) (timePassed / 1000); //time since the game started in seconds
-			if (timePassesSeconds > lastSecond) { //if a full second has passed
-				fps = frameCount; //update frames drawn last second
-				lastSecond = timePassesSeconds;
-				frameCount = 0;
+			draw(simulation.getSnapshot(), (float) accumulator / step); //the alpha is how far between updates we are, between 0 and 1
+			endFrame(now);
+		}
+	}
+
+	/**
+	 * A game loop which updates on its own thread, so slow frames never hold up or skip updates.<br>
+	 * The simulation thread updates {@link #updateRate} times per second and publishes a snapshot after each update.
+	 * This thread draws the newest snapshot at most {@link #frameCap} times per second, one update behind so that it
+	 * always has two positions to draw between.
+	 */
+	private void threadedLoop() {
+		final long step = NANOS_PER_SECOND / updateRate; //time between updates in nanos
+		final float dt = 1000f / updateRate; //time between updates in millis, passed to every update
+
+		running = true;
+		Thread updater = new Thread(() -> {
+			long nextUpdate = System.nanoTime() + step; //the time the next update is due
+
+			while (running) {
+				waitUntil(nextUpdate);
+				update(dt, nextUpdate);
+				nextUpdate += step;
+
+				//if we have fallen too far behind start again from now rather than rushing to catch up
+				if (System.nanoTime() - nextUpdate > MAX_SKIP * step)
+					nextUpdate = System.nanoTime();
 			}
+		}, name + " simulation");
+		updater.setDaemon(true);
+		updater.start();
+
+		startFrames(System.nanoTime());
+		while (this.isVisible()) {
+			Snapshot latest = simulation.getSnapshot();
+			long now = System.nanoTime();
+
+			float alpha = Math.max(0, Math.min(1, (float) (now - latest.getTime()) / step));
+			draw(latest, alpha);
+			endFrame(now);
+		}
+
+		running = false;
+		try {
+			updater.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
+	/**
+	 * Resets the frame timing before a loop starts.
+	 * @param now the current {@link System#nanoTime()}
+	 */
+	private void startFrames(long now) {
+		nextFrame = now;
+		lastFrameStart = now;
+		fpsTime = now;
+		frameCount = 0;
+	}
+
+	/**
+	 * Counts a drawn frame towards the fps and waits until the next frame is due.
+	 * @param now the {@link System#nanoTime()} the frame started
+	 */
+	private void endFrame(long now) {
+		profiler.record(Profiler.Phase.FRAME, now - lastFrameStart, now);
+		lastFrameStart = now;
+
+		//## calculate fps ##
+		frameCount++;
+		if (now - fpsTime >= NANOS_PER_SECOND) {
+			if (frameCount != fps)
+				fpsText = "FPS: " + frameCount;
+			fps = frameCount;
+			fpsTime += NANOS_PER_SECOND;
+			frameCount = 0;
+		}
+
+		//## wait for the next frame ##
+		if (frameCap > 0) {
+			long frameTime = NANOS_PER_SECOND / frameCap; //minimum time between frames
+			nextFrame += frameTime;
+
+			//if we have fallen more than a frame behind start again from now rather than rushing to catch up
+			if (System.nanoTime() - nextFrame > frameTime)
+				nextFrame = System.nanoTime();
+
+			waitUntil(nextFrame);
+		}
+	}
+
+	/**
+	 * Waits until the given time, sleeping for most of it and spinning for the last {@link #SPIN_TIME} nanos.
+	 * @param deadline the {@link System#nanoTime()} to wait until
+	 */
+	private static void waitUntil(long deadline) {
+		while (true) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				return;
+
+			if (remaining > SPIN_TIME) {
+				try {
+					Thread.sleep((remaining - SPIN_TIME) / 1_000_000L);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
+	/**
+	 * Sets how many times per second the game is updated, this must be set before the level is loaded.
+	 * @param updateRate the amount of updates per second
+	 */
+	public void setUpdateRate(int updateRate) {
+		if (updateRate <= 0)
+			throw new IllegalArgumentException("The update rate must be positive.");
+
+		this.updateRate = updateRate;
+	}
+
+	/**
+	 * Sets the most frames that can be drawn per second, this must be set before the level is loaded.
+	 * @param frameCap the maximum frames per second, 0 for no limit
+	 */
+	public void setFrameCap(int frameCap) {
+		if (frameCap < 0)
+			throw new IllegalArgumentException("The frame cap can not be negative.");
+
+		this.frameCap = frameCap;
+	}
+
+	/**
+	 * Sets whether the level is updated on its own thread while this thread draws it, this must be set before the level is loaded.
+	 * @param threaded whether to update the level on its own thread
+	 */
+	public void setThreaded(boolean threaded) {
+		this.threaded = threaded;
+	}
+
+	/**
+	 * Sets a file to record the input of each play of this level to, so it can be replayed with {@link Replay}.
+	 * @param recordingFile the file to save recordings to, null to stop recording
+	 */
+	public void setRecordingFile(File recordingFile) {
+		this.recordingFile = recordingFile;
+	}
+
+	/**
+	 * Sets whether frames wait for the display to refresh, this must be set before the level is loaded.<br>
+	 * The frame cap is still used with vsync, in case the display does not support it.
+	 * @param vsync whether to use vsync
+	 */
+	public void setVSync(boolean vsync) {
+		this.vsync = vsync;
+	}
+
 	@Override
 	public void keyPressed(KeyEvent e) {
-		if (!keysDown.contains(KeyEvent.getKeyText(e.getKeyCode()))) {
-			keysDown.add(KeyEvent.getKeyText(e.getKeyCode()));
-		}
+		if (e.getKeyCode() == KeyEvent.VK_F3)
+			profiler.toggleOverlay();
+
+		input.offer(e.getKeyCode(), true, System.nanoTime());
 	}
 
 	@Override
@@ -200,15 +526,7 @@ public class Level extends JFrame implements KeyListener {
 		if (e.getKeyCode() == KeyEvent.VK_ESCAPE)
 			this.dispose();
 
-		String toRemove = KeyEvent.getKeyText(e.getKeyCode());
-		ArrayList<String> removeVals = new ArrayList<>();
-		for (String keyDown : keysDown) {
-			if (keyDown.equals(toRemove)) {
-				removeVals.add(keyDown);
-			}
-		}
-
-		keysDown.removeAll(removeVals);
+		input.offer(e.getKeyCode(), false, System.nanoTime());
 	}
 
 	@Override
@@ -6,8 +6,12 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class create a simple level selection window to show different levels.
@@ -24,6 +28,15 @@ public class LevelSelect extends JFrame {
     /** Sound that plays when a button is pressed. */
     private Sound buttonSound;
 
+    /** Loads the levels in the background, limited to one thread per processor. */
+    private ExecutorService preloader;
+
+    /** Shows how many levels have been preloaded. */
+    private JProgressBar progress;
+
+    /** The amount of levels that have finished preloading. */
+    private final AtomicInteger preloadedCount = new AtomicInteger();
+
     public LevelSelect() {
         levels = new ArrayList<>(Arrays.asList(
                 new Level("Level 1", "maps\\Level1.json"),
@@ -31,10 +44,46 @@ public class LevelSelect extends JFrame {
                 new Level("Level 3", "maps\\Level3.json")
         ));
 
+        //-Dgame.threaded=true updates the levels on their own thread
+        for (Level level : levels)
+            level.setThreaded(Boolean.getBoolean("game.threaded"));
+
+        //-Dgame.record=<directory> saves the input of each play there, to be replayed with Game.Replay
+        String recordDirectory = System.getProperty("game.record");
+        if (recordDirectory != null)
+            for (Level level : levels)
+                level.setRecordingFile(new File(recordDirectory, level.getLevelName().replace(' ', '_') + ".rec"));
+
         buttonSound = new Sound("sounds\\button.wav", Sound.Filter.None);
         buttonSound.adjustVolume(-20);
 
         initJFrame();
+        preloadLevels();
+    }
+
+    /**
+     * Starts loading every level in the background, so a level can start as soon as it is clicked.
+     */
+    private void preloadLevels() {
+        int threads = Math.max(1, Math.min(levels.size(), Runtime.getRuntime().availableProcessors()));
+        preloader = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Level preloader");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        for (Level level : levels)
+            level.preload(preloader, () -> SwingUtilities.invokeLater(this::levelPreloaded));
+    }
+
+    /**
+     * Updates the progress bar after a level has preloaded.
+     */
+    private void levelPreloaded() {
+        int count = preloadedCount.incrementAndGet();
+        progress.setValue(count);
+        progress.setString((count == levels.size()) ? "Ready" : "Loading " + count + "/" + levels.size());
     }
 
     /**
@@ -80,12 +129,22 @@ public class LevelSelect extends JFrame {
             //whenever this button is clicked its assigned level is launched
             button.addActionListener(e -> {
                 buttonSound.play();
-                new Thread(() -> level.load(fullscreen)).start();
+                new Thread(() -> {
+                    level.load(fullscreen);
+
+                    //the map has been played, so load a fresh copy ready for next time
+                    level.preload(preloader, () -> {});
+                }).start();
             });
 
             buttonPanel.add(button);
         }
 
+        progress = new JProgressBar(0, levels.size());
+        progress.setStringPainted(true);
+        progress.setString("Loading 0/" + levels.size());
+        contentPane.add(progress, BorderLayout.SOUTH);
+
         setVisible(true);
     }
 
@@ -0,0 +1,118 @@
+package Game;
+
+import Game.Physics.LineOfSightCache;
+import Game.Sound.Sound;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the paths run every frame do not allocate once they are warmed up: drawing the tiles and sprites and
+ * flushing the camera, and checking line of sight through the cache directly or through a batch.<br>
+ * Allocation is measured with the bytes the JVM has allocated for the test thread.
+ * @author Connor Stewart
+ */
+class AllocationTest {
+
+	/** The amount of times an operation is run before it is measured, so that it is compiled. */
+	private static final int WARMUP = 20_000;
+
+	/** The amount of times an operation is run while it is measured. */
+	private static final int RUNS = 1_000;
+
+	/** The amount of times the measurement is repeated, the least allocated is used to ignore the JVMs own allocation. */
+	private static final int ROUNDS = 5;
+
+	private static final long SEED = 42;
+
+	private static com.sun.management.ThreadMXBean threads;
+	private static Map map;
+	private static Camera cam;
+	private static Sprite player;
+	private static final List<Sprite> slimes = new ArrayList<>();
+
+	@BeforeAll
+	static void load() throws Exception {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		Sound.setEnabled(false);
+		map = new Map(SyntheticMap.write(200, 1000, SEED), null, SEED);
+		player = map.getPlayer();
+
+		for (Sprite sprite : map.getSprites())
+			if (sprite instanceof Game.Entities.Slime)
+				slimes.add(sprite);
+
+		cam = new Camera(null, 600, 338, map.getMinX(), map.getMinY(),
+				map.getMinX() + map.getWidth(), map.getMinY() + map.getHeight(), false);
+		cam.setBackground(Assets.getImage("images/background.png"));
+		cam.centreOn(player.getX(), player.getY());
+	}
+
+	@Test
+	void cameraFlushDoesNotAllocate() {
+		assertEquals(0, allocatedBy(cam::flush));
+	}
+
+	@Test
+	void tileLayerDrawDoesNotAllocate() {
+		TileLayer layer = map.getTileLayer();
+		assertEquals(0, allocatedBy(() -> layer.draw(cam)));
+	}
+
+	@Test
+	void snapshotDrawDoesNotAllocate() {
+		Snapshot snapshot = Snapshot.of(null, map.getSprites(), map.getPlayer(), 0);
+		assertEquals(0, allocatedBy(() -> snapshot.draw(cam, 0.5f, false)));
+	}
+
+	@Test
+	void cachedLineOfSightDoesNotAllocate() {
+		assertEquals(0, allocatedBy(() -> {
+			for (int i = 0; i < slimes.size(); i++)
+				slimes.get(i).canSee(player);
+		}));
+	}
+
+	@Test
+	void batchedLineOfSightDoesNotAllocate() {
+		LineOfSightCache cache = map.getTileGrid().getLineOfSightCache();
+		LineOfSightCache.Batch batch = new LineOfSightCache.Batch(cache);
+
+		assertEquals(0, allocatedBy(() -> {
+			for (int i = 0; i < slimes.size(); i++)
+				slimes.get(i).canSee(player, batch);
+			cache.merge(batch);
+		}));
+	}
+
+	/**
+	 * Warms up an operation, then measures the bytes it allocates.
+	 * @param operation the operation to measure
+	 * @return the least bytes allocated by the current thread while running the operation {@link #RUNS} times
+	 */
+	private static long allocatedBy(Runnable operation) {
+		for (int i = 0; i < WARMUP; i++)
+			operation.run();
+
+		long least = Long.MAX_VALUE;
+		long id = Thread.currentThread().getId();
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = threads.getThreadAllocatedBytes(id);
+			for (int i = 0; i < RUNS; i++)
+				operation.run();
+			least = Math.min(least, threads.getThreadAllocatedBytes(id) - start);
+		}
+
+		return least;
+	}
+}
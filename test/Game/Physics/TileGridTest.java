@@ -0,0 +1,89 @@
+package Game.Physics;
+
+import Game.Entities.Tile;
+import Game.Map;
+import Game.Sound.Sound;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Collection;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks {@link TileGrid#intersects} against testing a line against every tile in the grid, the way line of sight was
+ * checked before the grid was walked.
+ * @author Connor Stewart
+ */
+class TileGridTest {
+
+	/** The amount of random lines checked in each map. */
+	private static final int LINES = 20_000;
+
+	@ParameterizedTest
+	@ValueSource(strings = {"maps/Level1.json", "maps/Level2.json", "maps/Level3.json"})
+	void intersectsMatchesEveryTile(String location) throws Exception {
+		Sound.setEnabled(false);
+		Map map = new Map(location, null, 42);
+		TileGrid tiles = map.getTileGrid();
+		Collection<Tile> all = tiles.getTiles();
+
+		float minX = map.getMinX() - tiles.getTileWidth();
+		float minY = map.getMinY() - tiles.getTileHeight();
+		float width = map.getWidth() + tiles.getTileWidth() * 2;
+		float height = map.getHeight() + tiles.getTileHeight() * 2;
+
+		Random random = new Random(location.hashCode());
+		for (int i = 0; i < LINES; i++) {
+			float x1 = minX + random.nextFloat() * width;
+			float y1 = minY + random.nextFloat() * height;
+			float x2, y2;
+
+			switch (i % 4) {
+				case 0:
+					//along a row or column of tile edges
+					x1 = Math.round(x1 / tiles.getTileWidth()) * tiles.getTileWidth();
+					y1 = Math.round(y1 / tiles.getTileHeight()) * tiles.getTileHeight();
+					x2 = (random.nextBoolean()) ? x1 : minX + random.nextFloat() * width;
+					y2 = (x2 == x1) ? minY + random.nextFloat() * height : y1;
+					break;
+				case 1:
+					//no length at all
+					x2 = x1;
+					y2 = y1;
+					break;
+				case 2:
+					//short, the length of the lines between slimes and the player
+					x2 = x1 + (random.nextFloat() - 0.5f) * 400;
+					y2 = y1 + (random.nextFloat() - 0.5f) * 200;
+					break;
+				default:
+					x2 = minX + random.nextFloat() * width;
+					y2 = minY + random.nextFloat() * height;
+			}
+
+			assertEquals(intersectsAny(all, x1, y1, x2, y2), tiles.intersects(x1, y1, x2, y2),
+					"line " + x1 + "," + y1 + " to " + x2 + "," + y2);
+		}
+
+		map.unload();
+	}
+
+	/**
+	 * Tests a line against every tile.
+	 * @param tiles the tiles to test
+	 * @param x1 the x coordinate of the first point
+	 * @param y1 the y coordinate of the first point
+	 * @param x2 the x coordinate of the second point
+	 * @param y2 the y coordinate of the second point
+	 * @return whether any tile intersects the line
+	 */
+	private static boolean intersectsAny(Collection<Tile> tiles, float x1, float y1, float x2, float y2) {
+		for (Tile tile : tiles)
+			if (Line.intersects(x1, y1, x2, y2, tile))
+				return true;
+
+		return false;
+	}
+}